@@ -0,0 +1,77 @@
+package com.kokozu.widget.samples;
+
+import com.kokozu.widget.seatview.SeatSoldSync;
+
+import java.util.Random;
+
+/**
+ * 模拟开售高峰期的售票推送，在后台线程中高频地随机售出、释放座位。
+ */
+class FakeSoldSource {
+
+    /**
+     * 每次推送的间隔
+     */
+    private static final long INTERVAL_MILLIS = 2;
+
+    /**
+     * 每次推送的座位数量
+     */
+    private static final int BATCH_SIZE = 8;
+
+    private final SeatSoldSync mSync;
+    private final int mMaxRow, mMaxCol;
+    private final Random mRandom = new Random();
+
+    private volatile boolean isRunning;
+    private Thread mThread;
+
+    FakeSoldSource(SeatSoldSync sync, int maxRow, int maxCol) {
+        this.mSync = sync;
+        this.mMaxRow = maxRow;
+        this.mMaxCol = maxCol;
+    }
+
+    void start() {
+        if (isRunning || mMaxRow <= 0 || mMaxCol <= 0) {
+            return;
+        }
+
+        isRunning = true;
+        mThread =
+                new Thread(
+                        new Runnable() {
+
+                            @Override
+                            public void run() {
+                                while (isRunning) {
+                                    for (int i = 0; i < BATCH_SIZE; i++) {
+                                        mSync.offerSeatSold(
+                                                1 + mRandom.nextInt(mMaxRow),
+                                                1 + mRandom.nextInt(mMaxCol),
+                                                mRandom.nextBoolean());
+                                    }
+                                    try {
+                                        Thread.sleep(INTERVAL_MILLIS);
+                                    } catch (InterruptedException e) {
+                                        return;
+                                    }
+                                }
+                            }
+                        },
+                        "FakeSoldSource");
+        mThread.start();
+    }
+
+    void stop() {
+        isRunning = false;
+        if (mThread != null) {
+            mThread.interrupt();
+            mThread = null;
+        }
+    }
+
+    boolean isRunning() {
+        return isRunning;
+    }
+}
@@ -11,6 +11,9 @@ import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
 import com.kokozu.widget.seatview.OnChooseSeatListener;
 import com.kokozu.widget.seatview.SeatData;
+import com.kokozu.widget.seatview.SeatMapParser;
+import com.kokozu.widget.seatview.SeatSoldSync;
+import com.kokozu.widget.seatview.SeatTable;
 import com.kokozu.widget.seatview.SeatThumbnailView;
 import com.kokozu.widget.seatview.SeatView;
 
@@ -18,6 +21,7 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -25,6 +29,8 @@ public class MainActivity extends AppCompatActivity implements OnChooseSeatListe
 
     SeatView seatView;
     SeatThumbnailView thumbnailView;
+    SeatSoldSync soldSync;
+    FakeSoldSource fakeSoldSource;
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
@@ -35,6 +41,7 @@ public class MainActivity extends AppCompatActivity implements OnChooseSeatListe
         seatView.attachThumbnailView(thumbnailView);
         seatView.setOnChooseSeatListener(this);
         seatView.setSeatState(SeatView.STATE_LOADING);
+        soldSync = new SeatSoldSync(seatView);
 
         loadSeats();
 
@@ -44,6 +51,21 @@ public class MainActivity extends AppCompatActivity implements OnChooseSeatListe
         findViewById(R.id.btn4).setOnClickListener(mRecommendClicked);
 
         findViewById(R.id.btn5).setOnClickListener(mRegularClicked);
+        findViewById(R.id.btn6).setOnClickListener(mFakeSoldClicked);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (fakeSoldSource != null) {
+            fakeSoldSource.stop();
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        soldSync.release();
     }
 
     private View.OnClickListener mRecommendClicked =
@@ -92,57 +114,60 @@ public class MainActivity extends AppCompatActivity implements OnChooseSeatListe
                 }
             };
 
+    private View.OnClickListener mFakeSoldClicked =
+            new View.OnClickListener() {
+
+                @Override
+                public void onClick(View v) {
+                    if (seatView.isSeatEmpty()) {
+                        return;
+                    }
+                    if (fakeSoldSource != null && fakeSoldSource.isRunning()) {
+                        fakeSoldSource.stop();
+                        return;
+                    }
+
+                    fakeSoldSource =
+                            new FakeSoldSource(
+                                    soldSync, seatView.getMaxRow(), seatView.getMaxCol());
+                    fakeSoldSource.start();
+                }
+            };
+
     private void loadSeats() {
         new Thread(
                 new Runnable() {
 
                     @Override
                     public void run() {
+                        Reader reader = null;
                         try {
-                            InputStream is = getAssets().open("seats.json");
-                            String seatsText = convertStreamToString(is);
-                            JSONObject object = JSON.parseObject(seatsText);
-                            List<Seat> seats =
-                                    JSON.parseArray(object.getString("seats"), Seat.class);
-
-                            if (seats != null) {
-                                final List<SeatData> seatList = new ArrayList<>();
-                                for (Seat seat : seats) {
-                                    SeatData seatData = new SeatData();
-                                    seatData.state =
-                                            seat.getSeatState() == 0
-                                                    ? SeatData.STATE_NORMAL
-                                                    : SeatData.STATE_SOLD;
-                                    seatData.point =
-                                            new Point(
-                                                    seat.getGraphRow(), seat.getGraphCol());
-                                    if (seat.getSeatType() == 1) {
-                                        seatData.type =
-                                                seat.isLoverL()
-                                                        ? SeatData.TYPE_LOVER_LEFT
-                                                        : SeatData.TYPE_LOVER_RIGHT;
-                                    } else {
-                                        seatData.type = SeatData.TYPE_NORMAL;
-                                    }
-                                    seatList.add(seatData);
-                                }
+                            reader = new InputStreamReader(getAssets().open("seats.json"));
+                            final SeatTable table = SeatMapParser.parse(reader);
 
+                            try {
+                                Thread.sleep(3000);
+                            } catch (InterruptedException e) {
+                                e.printStackTrace();
+                            }
+                            runOnUiThread(
+                                    new Runnable() {
+
+                                        @Override
+                                        public void run() {
+                                            seatView.setSeatData(table);
+                                        }
+                                    });
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        } finally {
+                            if (reader != null) {
                                 try {
-                                    Thread.sleep(3000);
-                                } catch (InterruptedException e) {
+                                    reader.close();
+                                } catch (IOException e) {
                                     e.printStackTrace();
                                 }
-                                runOnUiThread(
-                                        new Runnable() {
-
-                                            @Override
-                                            public void run() {
-                                                seatView.setSeatData(seatList);
-                                            }
-                                        });
                             }
-                        } catch (IOException e) {
-                            e.printStackTrace();
                         }
                     }
                 })
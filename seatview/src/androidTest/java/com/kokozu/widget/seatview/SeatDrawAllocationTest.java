@@ -0,0 +1,160 @@
+package com.kokozu.widget.seatview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Debug;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.LayoutInflater;
+import android.view.View;
+
+import com.kokozu.widget.seatview.test.R;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 统计座位图和缩略图稳定绘制时每帧分配的对象数量，应为 0。
+ */
+@RunWith(AndroidJUnit4.class)
+public class SeatDrawAllocationTest {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+
+    private static final int WARM_UP_FRAMES = 3;
+    private static final int MEASURED_FRAMES = 20;
+
+    private SeatView mSeatView;
+    private SeatThumbnailView mThumbnailView;
+    private Bitmap mBitmap;
+    private Canvas mCanvas;
+
+    @Before
+    public void setUp() {
+        runOnMainSync(
+                new Runnable() {
+
+                    @Override
+                    public void run() {
+                        View root =
+                                LayoutInflater.from(InstrumentationRegistry.getContext())
+                                        .inflate(R.layout.seat_view_allocation_test, null);
+                        root.measure(
+                                View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                                View.MeasureSpec.makeMeasureSpec(
+                                        HEIGHT, View.MeasureSpec.EXACTLY));
+                        root.layout(0, 0, WIDTH, HEIGHT);
+
+                        mSeatView = (SeatView) root.findViewById(R.id.seat_view);
+                        mThumbnailView = (SeatThumbnailView) root.findViewById(R.id.thumbnail_view);
+                        mSeatView.attachThumbnailView(mThumbnailView);
+                        mSeatView.setSeatData(newHall(30, 50));
+
+                        mBitmap = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+                        mCanvas = new Canvas(mBitmap);
+                    }
+                });
+    }
+
+    @After
+    public void tearDown() {
+        if (mBitmap != null) {
+            mBitmap.recycle();
+        }
+    }
+
+    @Test
+    public void seatView_steadyFrames_allocateNothing() {
+        assertEquals(
+                0,
+                countFrameAllocations(
+                        new Runnable() {
+
+                            @Override
+                            public void run() {
+                                mSeatView.onDraw(mCanvas);
+                            }
+                        }));
+    }
+
+    @Test
+    public void thumbnailView_steadyFrames_allocateNothing() {
+        assertEquals(
+                0,
+                countFrameAllocations(
+                        new Runnable() {
+
+                            @Override
+                            public void run() {
+                                mThumbnailView.onDraw(mCanvas);
+                            }
+                        }));
+    }
+
+    /**
+     * 预热几帧创建图集等缓存后，统计之后若干帧分配的对象数量。
+     *
+     * @param drawFrame 绘制一帧
+     */
+    private int countFrameAllocations(final Runnable drawFrame) {
+        final int[] result = new int[1];
+        runOnMainSync(
+                new Runnable() {
+
+                    @Override
+                    @SuppressWarnings("deprecation")
+                    public void run() {
+                        for (int i = 0; i < WARM_UP_FRAMES; i++) {
+                            drawFrame.run();
+                        }
+
+                        Debug.resetThreadAllocCount();
+                        Debug.startAllocCounting();
+                        for (int i = 0; i < MEASURED_FRAMES; i++) {
+                            drawFrame.run();
+                        }
+                        Debug.stopAllocCounting();
+                        result[0] = Debug.getThreadAllocCount();
+                    }
+                });
+        return result[0];
+    }
+
+    private static void runOnMainSync(Runnable runnable) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(runnable);
+    }
+
+    /**
+     * 生成每排中间有过道、两侧有情侣座、部分座位已售的影厅。
+     */
+    private static SeatTable newHall(int rowCount, int colCount) {
+        List<String> rows = new ArrayList<>(rowCount);
+        List<String> soldRows = new ArrayList<>(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            StringBuilder seats = new StringBuilder(colCount);
+            StringBuilder sold = new StringBuilder(colCount);
+            for (int col = 0; col < colCount; col++) {
+                if (col == colCount / 2) {
+                    seats.append(SeatRowDecoder.NO_SEAT);
+                } else if (col < 4) {
+                    seats.append(
+                            col % 2 == 0 ? SeatRowDecoder.LOVER_LEFT : SeatRowDecoder.LOVER_RIGHT);
+                } else {
+                    seats.append(SeatRowDecoder.SEAT);
+                }
+                sold.append((row * 7 + col * 3) % 5 == 0 ? SeatRowDecoder.SOLD : '0');
+            }
+            rows.add(seats.toString());
+            soldRows.add(sold.toString());
+        }
+        return SeatRowDecoder.decode(rows, soldRows);
+    }
+}
@@ -1,11 +1,9 @@
 package com.kokozu.widget.seatview;
 
-import android.graphics.Point;
-import android.util.SparseArray;
+import android.util.LruCache;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -14,239 +12,903 @@ import java.util.List;
  * @author fushixiang
  * @since 2017-04-20
  */
-class BestSeatFinder {
+class BestSeatFinder implements SeatGrid.OnSeatChangedListener {
+
+    private static final int[] EMPTY_RANKING = new int[0];
+    private static final float[] EMPTY_COSTS = new float[0];
+
+    /**
+     * 分排推荐时前后两组座位中心在横向上的最大偏移
+     */
+    static final int MAX_SPLIT_OFFSET = 2;
+
+    /**
+     * 分排推荐时前后两组座位中心横向偏移的代价权重
+     */
+    static final float SPLIT_OFFSET_WEIGHT = 1;
+
+    /**
+     * 同时推荐多组座位时，第一轮搜索每组最多尝试的候选位置数量，之后每轮加倍
+     */
+    private static final int MAX_GROUP_CANDIDATES = 8;
+
+    /**
+     * 参与排序的排、列上限，排序时排、列各占 12 位
+     */
+    private static final int MAX_RANK_INDEX = 0xFFF;
+
+    /**
+     * 缓存的座位排序占用的最大字节数
+     */
+    private static final int RANKING_CACHE_SIZE = 1024 * 1024;
+
+    /**
+     * 按影厅的大小和中心缓存离中心由近到远的座位位置，多个座位图共用。
+     * key：见 {@link #rankingKey(int, int, int, int)}，value：SeatGrid.packKey(row, col)
+     */
+    private static final LruCache<Long, int[]> sRankings =
+            new LruCache<Long, int[]>(RANKING_CACHE_SIZE) {
+
+                @Override
+                protected int sizeOf(Long key, int[] value) {
+                    return value.length * 4;
+                }
+            };
 
     private int mMaxRow, mMaxCol;
 
     /**
-     * 座位数组
+     * 影厅的中心，x 为列，y 为排
+     */
+    private int mCenterX, mCenterY;
+
+    /**
+     * 座位的状态从该网格读取，网格发生变化时自动更新
+     */
+    private final SeatGrid mSeatGrid;
+
+    /*
+     * 每排可推荐（有座位且未售）、情侣座、情侣座左边座位的位图
+     */
+    private SeatBits mFreeBits = new SeatBits();
+    private SeatBits mLoverBits = new SeatBits();
+    private SeatBits mLoverLeftBits = new SeatBits();
+
+    /**
+     * 离中心由近到远的座位位置，用于定位
+     */
+    private int[] mRanking = EMPTY_RANKING;
+
+    /**
+     * 每个位置在 mRanking 中的序号，index：row * (mMaxCol + 1) + col。第一次按离中心的距离查找多组推荐座位时创建
+     */
+    private int[] mRankIndexes = EMPTY_RANKING;
+
+    /**
+     * 推荐座位的评分模型，为 null 时按离中心的距离推荐
      */
-    private SeatData[][] mSeatArray;
+    private SeatScoreModel mScoreModel;
 
     /**
-     * 影厅座位图
+     * 每个座位的代价，index：row * (mMaxCol + 1) + col
      */
-    private List<SeatData> mSeats = new ArrayList<>();
+    private float[] mSeatCosts = EMPTY_COSTS;
 
     /**
-     * 已售座位图
+     * @param grid 座位的状态从该网格读取
      */
-    private List<SeatData> mSoldSeats = new ArrayList<>();
+    BestSeatFinder(SeatGrid grid) {
+        this.mSeatGrid = grid;
+        grid.addOnSeatChangedListener(this);
+    }
+
+    @Override
+    public void onSeatsChanged() {
+        rebuild();
+    }
 
     /**
-     * 用于定位
+     * 座位的状态或类型发生了变化，只更新该座位的位图和代价。
      */
-    private List<Point> mPoints = new ArrayList<>();
+    @Override
+    public void onSeatChanged(int row, int col) {
+        int state = mSeatGrid.getState(row, col);
+        int type = mSeatGrid.getType(row, col);
+        mFreeBits.set(row, col, state != SeatGrid.NO_SEAT && state != SeatData.STATE_SOLD);
+        mLoverBits.set(row, col, type != SeatData.TYPE_NORMAL);
+        mLoverLeftBits.set(row, col, type == SeatData.TYPE_LOVER_LEFT);
+        if (mScoreModel != null && mSeatCosts.length > 0) {
+            mSeatCosts[row * (mMaxCol + 1) + col] =
+                    mScoreModel.getSeatCost(row, col, type, mMaxRow, mMaxCol);
+        }
+    }
 
-    private SparseArray<List<List<SeatData>>> mIgnoreSeats = new SparseArray<>();
+    /**
+     * 座位数据发生了变化，根据座位网格重建位图和每个座位的代价。
+     */
+    private void rebuild() {
+        int maxRow = mSeatGrid.getMaxRow();
+        int maxCol = mSeatGrid.getMaxCol();
+        mMaxRow = maxRow;
+        mMaxCol = maxCol;
 
-    void setSeats(List<SeatData> seats) {
-        mSeats.clear();
-        if (seats != null && seats.size() > 0) {
-            this.mSeats.addAll(seats);
+        mRanking = EMPTY_RANKING;
+        mRankIndexes = EMPTY_RANKING;
+        if (mSeatGrid.size() > 0) {
+            mCenterX = (maxCol / 2) + (maxCol % 2);
+            mCenterY = maxRow / 2 + (maxRow % 2);
+            mRanking = obtainRanking(maxRow, maxCol, mCenterX, mCenterY);
         }
-        final int size = Utils.size(mSeats);
-        int maxCol = 0;
-        int maxRow = 0;
-        for (int i = 0; i < size; i++) {
-            SeatData seat = mSeats.get(i);
-            if (seat.point.y > maxCol) {
-                maxCol = seat.point.y;
+        updateSeatBits();
+        updateSeatCosts();
+    }
+
+    /**
+     * 设置推荐座位的评分模型。
+     *
+     * @param model 评分模型，为 null 时按离中心的距离推荐
+     */
+    void setScoreModel(SeatScoreModel model) {
+        mScoreModel = model;
+        updateSeatCosts();
+    }
+
+    /**
+     * 查找推荐的座位。
+     *
+     * @param recommendCount 推荐座位的数量
+     * @param checkRegular   是否只推荐符合选座规则的座位，判断时视为已选座位只有推荐的座位
+     * @return 推荐的座位，没有合适的座位时返回空列表
+     */
+    List<SeatData> selectedRecommendSeat(int recommendCount, boolean checkRegular) {
+        List<SeatData> bestSeat = new ArrayList<>();
+        if (mSeatGrid.size() == 0 || recommendCount <= 0) {
+            return bestSeat;
+        }
+
+        // 设置了评分模型时查找代价最小的座位
+        if (mScoreModel != null) {
+            List<RecommendedSeats> results =
+                    findRecommendSeats(recommendCount, 1, checkRegular);
+            if (!results.isEmpty()) {
+                bestSeat.addAll(results.get(0).seats);
             }
-            if (seat.point.x > maxRow) {
-                maxRow = seat.point.x;
+            return bestSeat;
+        }
+
+        // 按离中心的距离依次检查，每个位置只需查询位图
+        for (int key : mRanking) {
+            int row = SeatGrid.keyRow(key);
+            int col = SeatGrid.keyCol(key);
+            if (!mFreeBits.get(row, col)) {
+                continue;
+            }
+
+            col = Math.max(0, col - getAnchorOffset(recommendCount));
+            if (isBlockAvailable(row, col, recommendCount)
+                    && (!checkRegular
+                    || SeatSelectRegular.isBlockLegal(mFreeBits, row, col, recommendCount))) {
+                for (int j = 0; j < recommendCount; j++) {
+                    bestSeat.add(mSeatGrid.get(row, col + j));
+                }
+                break;
             }
         }
-        mMaxRow = maxRow;
-        mMaxCol = maxCol;
+        return bestSeat;
+    }
+
+    /**
+     * 查找代价最小的若干组推荐座位，不改变座位的状态。每一排的每个起始位置只检查一次，
+     * 用大小为 maxResults 的堆保留代价最小的结果。
+     * <p>
+     * 设置了评分模型时代价为座位代价的平均值；否则为 {@link #selectedRecommendSeat(int, boolean)}
+     * 按离中心由近到远检查时，最先检查到这组座位的序号，结果的顺序与依次推荐的顺序相同，第一组就是推荐的座位。
+     *
+     * @param recommendCount 每组座位的数量
+     * @param maxResults     最多返回的组数
+     * @param checkRegular   是否只推荐符合选座规则的座位
+     * @return 按代价从小到大排列的推荐座位
+     */
+    List<RecommendedSeats> findRecommendSeats(
+            int recommendCount, int maxResults, boolean checkRegular) {
+        if (mSeatGrid.size() == 0 || recommendCount <= 0 || maxResults <= 0) {
+            return new ArrayList<>(0);
+        }
+
+        // 大顶堆，堆顶是已保留结果中代价最大的
+        final float[] heapScores = new float[maxResults];
+        final int[] heapKeys = new int[maxResults];
+        int heapSize = 0;
 
-        if (maxRow > 0 && maxCol > 0) {
-            // 初始化座位数组
-            mSeatArray = new SeatData[maxRow + 1][maxCol + 1];
-            mPoints.clear();
-            for (SeatData seat : mSeats) {
-                int row = seat.point.x;
-                int col = seat.point.y;
-                mSeatArray[row][col] = seat;
+        final int[] rankIndexes = mScoreModel == null ? obtainRankIndexes() : null;
+        final int anchorOffset = getAnchorOffset(recommendCount);
+        final int stride = mMaxCol + 1;
+        final int lastStart = mMaxCol - recommendCount + 1;
+        for (int row = 0; row <= mMaxRow; row++) {
+            // 滑动窗口累加每个座位的代价
+            final int base = row * stride;
+            double windowCost = 0;
+            for (int col = 0; col < recommendCount - 1 && col <= mMaxCol; col++) {
+                windowCost += mSeatCosts[base + col];
             }
-            for (int row = 0; row < mSeatArray.length; row++) {
-                for (int col = 0; col < mSeatArray[row].length; col++) {
-                    mPoints.add(new Point(col, row));
+            for (int col = 0; col <= lastStart; col++) {
+                windowCost += mSeatCosts[base + col + recommendCount - 1];
+                if (col > 0) {
+                    windowCost -= mSeatCosts[base + col - 1];
+                }
+
+                if (!isBlockAvailable(row, col, recommendCount)
+                        || (checkRegular
+                        && !SeatSelectRegular.isBlockLegal(mFreeBits, row, col, recommendCount))) {
+                    continue;
+                }
+
+                float score;
+                if (rankIndexes != null) {
+                    score = getAnchorRank(rankIndexes, base, col, anchorOffset);
+                    if (score < 0) {
+                        continue;
+                    }
+                } else {
+                    score = (float) (windowCost / recommendCount);
+                }
+                int key = SeatGrid.packKey(row, col);
+                if (heapSize < maxResults) {
+                    heapScores[heapSize] = score;
+                    heapKeys[heapSize] = key;
+                    siftUp(heapScores, heapKeys, heapSize++);
+                } else if (isBetter(score, key, heapScores[0], heapKeys[0])) {
+                    heapScores[0] = score;
+                    heapKeys[0] = key;
+                    siftDown(heapScores, heapKeys, 0, heapSize);
                 }
             }
-            int centerX = (maxCol / 2) + (maxCol % 2);
-            int centerY = maxRow / 2 + (maxRow % 2);
-            Collections.sort(mPoints, new PointComparator(new Point(centerX, centerY)));
+        }
+
+        // 依次取出堆顶，得到从大到小的顺序，倒序放入结果
+        final RecommendedSeats[] results = new RecommendedSeats[heapSize];
+        for (int i = heapSize - 1; i >= 0; i--) {
+            int row = SeatGrid.keyRow(heapKeys[0]);
+            int col = SeatGrid.keyCol(heapKeys[0]);
+            List<SeatData> seats = new ArrayList<>(recommendCount);
+            for (int j = 0; j < recommendCount; j++) {
+                seats.add(mSeatGrid.get(row, col + j));
+            }
+            results[i] = new RecommendedSeats(seats, heapScores[0]);
+
+            heapScores[0] = heapScores[i];
+            heapKeys[0] = heapKeys[i];
+            siftDown(heapScores, heapKeys, 0, i);
+        }
+        return new ArrayList<>(Arrays.asList(results));
+    }
 
-            updateSeatArray();
-        } else {
-            mSeatArray = null;
+    /**
+     * 按离中心的距离推荐时，检查的位置在一组座位中的偏移。第一个座位的列为检查的列减去偏移，小于 0 时为 0。
+     */
+    private int getAnchorOffset(int recommendCount) {
+        if (recommendCount <= 1) {
+            return 0;
+        }
+        return recommendCount / 2 - (mMaxCol % 2 == 0 ? 1 : 0);
+    }
+
+    /**
+     * 获取从 col 开始的一组座位最先被检查到的序号。第一列开始的座位可以由多个位置检查到，取最小的序号。
+     *
+     * @return 序号，不会被检查到时返回 -1
+     */
+    private int getAnchorRank(int[] rankIndexes, int base, int col, int anchorOffset) {
+        if (rankIndexes.length == 0) {
+            return -1;
+        }
+        if (col > 0) {
+            int anchor = col + anchorOffset;
+            return anchor <= mMaxCol ? rankIndexes[base + anchor] : -1;
+        }
+        int rank = Integer.MAX_VALUE;
+        for (int anchor = 0; anchor <= anchorOffset && anchor <= mMaxCol; anchor++) {
+            rank = Math.min(rank, rankIndexes[base + anchor]);
         }
+        return rank;
     }
 
-    void setSoldSeats(List<SeatData> seats) {
-        if (!Utils.isEmpty(seats)) {
-            mSoldSeats.clear();
-            mSoldSeats.addAll(seats);
-            if (!Utils.isEmpty(mSeats)) {
-                updateSeatArray();
+    private int[] obtainRankIndexes() {
+        if (mRankIndexes.length == 0 && mRanking.length > 0) {
+            final int[] rankIndexes = new int[mRanking.length];
+            for (int i = 0; i < mRanking.length; i++) {
+                int key = mRanking[i];
+                rankIndexes[SeatGrid.keyRow(key) * (mMaxCol + 1) + SeatGrid.keyCol(key)] = i;
             }
+            mRankIndexes = rankIndexes;
         }
+        return mRankIndexes;
     }
 
-    List<SeatData> selectedRecommendSeat(int recommendCount) {
+    /**
+     * 分排推荐座位：一排中没有足够的连续座位时，把座位分成前后相邻两排的两组，两组座位在横向上尽量对齐。
+     * 按分组方式和相邻的两排做分支定界搜索，超时后返回已找到的最优结果。
+     *
+     * @param recommendCount 推荐座位的数量
+     * @param checkRegular   是否只推荐符合选座规则的座位
+     * @param timeoutNanos   搜索的时间上限，单位纳秒
+     * @return 推荐的座位，前一排的座位在前，没有合适的座位时返回空列表
+     */
+    List<SeatData> selectedSplitRecommendSeat(
+            int recommendCount, boolean checkRegular, long timeoutNanos) {
         List<SeatData> bestSeat = new ArrayList<>();
-        if (mSeatArray != null) {
-            // 查找最佳座位
-            for (int i = 0; i < mPoints.size(); i++) {
-                Point point = mPoints.get(i);
-                SeatData seat = mSeatArray[point.y][point.x];
-                if (seat == null || seat.state == SeatData.STATE_SOLD) {
+        if (mSeatGrid.size() == 0 || recommendCount < 2) {
+            return bestSeat;
+        }
+
+        final long deadline = System.nanoTime() + timeoutNanos;
+        final double[] prefix = buildCostPrefix();
+        final double[] frontMinCosts = new double[mMaxRow + 1];
+        final double[] backMinCosts = new double[mMaxRow + 1];
+
+        double bestCost = Double.MAX_VALUE;
+        int bestRow = -1, bestFrontCol = 0, bestFrontCount = 0, bestBackCol = 0;
+
+        // 从平均分配开始尝试，更容易尽早找到较优的结果用于剪枝。
+        // 前一排的数量依次为 N/2、N/2 + 1、N/2 - 1、N/2 + 2 ...
+        search:
+        for (int i = 0; i < recommendCount - 1; i++) {
+            final int delta = (i + 1) / 2;
+            final int frontCount = recommendCount / 2 + (i % 2 == 1 ? delta : -delta);
+            final int backCount = recommendCount - frontCount;
+
+            fillMinBlockCosts(prefix, frontCount, checkRegular, frontMinCosts);
+            fillMinBlockCosts(prefix, backCount, checkRegular, backMinCosts);
+            for (int row = 0; row < mMaxRow; row++) {
+                // 用差值比较，timeoutNanos 很大时 deadline 溢出也能正确判断
+                if (System.nanoTime() - deadline > 0) {
+                    break search;
+                }
+                // 下界：两排各自代价最小的座位之和
+                if (frontMinCosts[row] + backMinCosts[row + 1] >= bestCost) {
                     continue;
                 }
 
-                int col = point.x;
-                if (recommendCount > 1) {
-                    col -= recommendCount / 2;
-                    if (mMaxCol % 2 == 0) {
-                        col += 1;
+                for (int frontCol = 0; frontCol <= mMaxCol - frontCount + 1; frontCol++) {
+                    double frontCost = getBlockCost(prefix, row, frontCol, frontCount);
+                    if (frontCost + backMinCosts[row + 1] >= bestCost
+                            || !isBlockCandidate(row, frontCol, frontCount, checkRegular)) {
+                        continue;
                     }
-                    if (col < 0) {
-                        col = 0;
-                    }
-                }
-                for (int j = 0; j < recommendCount; j++) {
-                    SeatData isGood = mSeatArray[point.y][col + j];
-                    if (isGood != null) {
-                        bestSeat.add(isGood);
+
+                    // 两组座位中心的列分别为 frontCol + (frontCount - 1) / 2、backCol + (backCount - 1) / 2
+                    int shift = (frontCount - backCount) / 2;
+                    int from = Math.max(0, frontCol + shift - MAX_SPLIT_OFFSET);
+                    int to = Math.min(mMaxCol - backCount + 1, frontCol + shift + MAX_SPLIT_OFFSET);
+                    for (int backCol = from; backCol <= to; backCol++) {
+                        float offset = (frontCol + (frontCount - 1) / 2f)
+                                - (backCol + (backCount - 1) / 2f);
+                        double cost = frontCost
+                                + getBlockCost(prefix, row + 1, backCol, backCount)
+                                + SPLIT_OFFSET_WEIGHT * offset * offset;
+                        if (cost < bestCost
+                                && isBlockCandidate(row + 1, backCol, backCount, checkRegular)) {
+                            bestCost = cost;
+                            bestRow = row;
+                            bestFrontCol = frontCol;
+                            bestFrontCount = frontCount;
+                            bestBackCol = backCol;
+                        }
                     }
                 }
-                boolean checkAvailable = checkSeatChooseAvailable(recommendCount, bestSeat);
-                if (checkAvailable) {
-                    break;
-                } else {
-                    bestSeat.clear();
-                }
+            }
+        }
+
+        if (bestRow >= 0) {
+            for (int j = 0; j < bestFrontCount; j++) {
+                bestSeat.add(mSeatGrid.get(bestRow, bestFrontCol + j));
+            }
+            for (int j = 0; j < recommendCount - bestFrontCount; j++) {
+                bestSeat.add(mSeatGrid.get(bestRow + 1, bestBackCol + j));
             }
         }
         return bestSeat;
     }
 
-    void clear() {
-        mSoldSeats.clear();
-        mPoints.clear();
-        mSeats.clear();
-    }
+    /**
+     * 同时为多组观众推荐座位，各组座位互不重叠，全部选中后符合选座规则。按组做分支定界的深度优先搜索，
+     * 超时后返回已找到的最优结果。
+     * <p>
+     * 第一轮每组只尝试代价最小的 {@link #MAX_GROUP_CANDIDATES} 个位置，校验规则时每放置一组就检查该排，
+     * 很快就能找到较优的结果。之后每轮候选的数量加倍，以已找到的结果剪枝，直到尝试所有的位置；
+     * 尝试所有位置的一轮在所有组放置后才检查规则，不会漏掉需要之后的组填补空位才合法的放置方式。
+     * 因此没有超时时返回的是最优结果，没有合法的放置方式时才返回空列表。
+     *
+     * @param groupCounts  每组座位的数量
+     * @param checkRegular 是否只推荐符合选座规则的座位
+     * @param timeoutNanos 搜索的时间上限，单位纳秒
+     * @return 与 groupCounts 顺序对应的推荐座位，没有合适的座位时返回空列表
+     */
+    List<List<SeatData>> selectedGroupRecommendSeats(
+            int[] groupCounts, boolean checkRegular, long timeoutNanos) {
+        List<List<SeatData>> result = new ArrayList<>();
+        if (mSeatGrid.size() == 0 || groupCounts == null || groupCounts.length == 0) {
+            return result;
+        }
+        for (int count : groupCounts) {
+            if (count <= 0 || count > mMaxCol + 1) {
+                return result;
+            }
+        }
 
-    private void updateSeatArray() {
-        if (mSeatArray != null && !Utils.isEmpty(mSoldSeats)) {
-            for (SeatData soldSeat : mSoldSeats) {
-                int row = soldSeat.point.x;
-                int col = soldSeat.point.y;
-                if (row <= mMaxRow && col <= mMaxCol) {
-                    mSeatArray[row][col] = soldSeat;
-                }
+        GroupSearch search =
+                new GroupSearch(groupCounts, checkRegular, System.nanoTime() + timeoutNanos);
+        final int placementCount = (mMaxRow + 1) * (mMaxCol + 1);
+        for (int maxCandidates = MAX_GROUP_CANDIDATES; ; maxCandidates *= 2) {
+            boolean isExhaustive = maxCandidates >= placementCount;
+            search.start(isExhaustive ? placementCount : maxCandidates, isExhaustive);
+            search.search(0, 0);
+            if (search.isTimeout || isExhaustive) {
+                break;
             }
         }
+        if (search.mBestCost == Double.MAX_VALUE) {
+            return result;
+        }
+
+        for (int g = 0; g < groupCounts.length; g++) {
+            int row = SeatGrid.keyRow(search.mBestKeys[g]);
+            int col = SeatGrid.keyCol(search.mBestKeys[g]);
+            List<SeatData> seats = new ArrayList<>(groupCounts[g]);
+            for (int j = 0; j < groupCounts[g]; j++) {
+                seats.add(mSeatGrid.get(row, col + j));
+            }
+            result.add(seats);
+        }
+        return result;
     }
 
-    private boolean checkSeatChooseAvailable(int recommendCount, List<SeatData> selectedSeat) {
-        if (Utils.size(selectedSeat) == recommendCount) {
-            boolean available = true;
-            boolean hasLover = false;
-            for (SeatData seat : selectedSeat) {
-                if (seat.isLoverSeat()) {
-                    hasLover = true;
-                }
-                if (seat.state == SeatData.STATE_SOLD) {
-                    available = false;
-                    break;
+    /**
+     * 复制当前的座位状态，用于在后台线程中查找推荐座位。复制后的对象不受之后座位状态变化的影响。
+     *
+     * @return 新的对象
+     */
+    BestSeatFinder snapshot() {
+        BestSeatFinder finder = new BestSeatFinder(mSeatGrid.copy());
+        finder.mMaxRow = mMaxRow;
+        finder.mMaxCol = mMaxCol;
+        finder.mCenterX = mCenterX;
+        finder.mCenterY = mCenterY;
+        finder.mFreeBits = mFreeBits.copy();
+        finder.mLoverBits = mLoverBits.copy();
+        finder.mLoverLeftBits = mLoverLeftBits.copy();
+        // 排序结果是共享的，不会被修改
+        finder.mRanking = mRanking;
+        finder.mRankIndexes = mRankIndexes;
+        finder.mScoreModel = mScoreModel;
+        finder.mSeatCosts = mSeatCosts.length == 0 ? EMPTY_COSTS : mSeatCosts.clone();
+        return finder;
+    }
+
+    private void updateSeatBits() {
+        final int maxRow = mSeatGrid.getMaxRow();
+        final int maxCol = mSeatGrid.getMaxCol();
+        mFreeBits.reset(maxRow, maxCol);
+        mLoverBits.reset(maxRow, maxCol);
+        mLoverLeftBits.reset(maxRow, maxCol);
+        if (mSeatGrid.size() == 0) {
+            return;
+        }
+
+        for (int row = 0; row <= maxRow; row++) {
+            for (int col = 0; col <= maxCol; col++) {
+                int state = mSeatGrid.getState(row, col);
+                if (state == SeatGrid.NO_SEAT) {
+                    continue;
                 }
+                int type = mSeatGrid.getType(row, col);
+                mFreeBits.set(row, col, state != SeatData.STATE_SOLD);
+                mLoverBits.set(row, col, type != SeatData.TYPE_NORMAL);
+                mLoverLeftBits.set(row, col, type == SeatData.TYPE_LOVER_LEFT);
             }
-            // 情侣座的情况
-            if (hasLover) {
-                // 不是2的倍数
-                if (recommendCount % 2 != 0) {
-                    available = false;
+        }
+    }
+
+    /**
+     * 判断从 col 开始的 count 个座位是否都可推荐。
+     */
+    private boolean isBlockAvailable(int row, int col, int count) {
+        final int last = col + count - 1;
+        if (!mFreeBits.isAllSet(row, col, last)) {
+            return false;
+        }
+        // 情侣座的情况：数量必须是 2 的倍数，且第一个座位是 left
+        if (mLoverBits.isAnySet(row, col, last)) {
+            return count % 2 == 0 && mLoverLeftBits.get(row, col);
+        }
+        return true;
+    }
+
+    /**
+     * 计算每个座位的代价。未设置评分模型时为到影厅中心距离的平方。
+     */
+    private void updateSeatCosts() {
+        if (mSeatGrid.size() == 0) {
+            mSeatCosts = EMPTY_COSTS;
+            return;
+        }
+
+        final int stride = mMaxCol + 1;
+        final int length = (mMaxRow + 1) * stride;
+        if (mSeatCosts.length != length) {
+            mSeatCosts = new float[length];
+        }
+        for (int row = 0; row <= mMaxRow; row++) {
+            for (int col = 0; col <= mMaxCol; col++) {
+                float cost;
+                if (mScoreModel != null) {
+                    int type = mSeatGrid.getType(row, col);
+                    cost = mScoreModel.getSeatCost(row, col, type, mMaxRow, mMaxCol);
                 } else {
-                    // 第一个座位不是left
-                    if (!selectedSeat.get(0).isLoverLeftSeat()) {
-                        available = false;
-                    }
+                    int dx = col - mCenterX;
+                    int dy = row - mCenterY;
+                    cost = dx * dx + dy * dy;
                 }
+                mSeatCosts[row * stride + col] = cost;
             }
+        }
+    }
 
-            // 如果有忽略的座位
-            if (mIgnoreSeats.size() > 0 && !Utils.isEmpty(mIgnoreSeats.get(recommendCount))) {
-                List<List<SeatData>> ignoreSeats = mIgnoreSeats.get(recommendCount);
-                for (List<SeatData> seats : ignoreSeats) {
-                    if (selectedSeat.equals(seats)) {
-                        available = false;
-                        break;
-                    }
+    private boolean isBlockCandidate(int row, int col, int count, boolean checkRegular) {
+        return isBlockAvailable(row, col, count)
+                && (!checkRegular || SeatSelectRegular.isBlockLegal(mFreeBits, row, col, count));
+    }
+
+    /**
+     * 每排座位代价的前缀和，index：row * (mMaxCol + 2) + col，值为该排 [0, col) 列的代价之和。
+     */
+    private double[] buildCostPrefix() {
+        final int stride = mMaxCol + 2;
+        final double[] prefix = new double[(mMaxRow + 1) * stride];
+        for (int row = 0; row <= mMaxRow; row++) {
+            for (int col = 0; col <= mMaxCol; col++) {
+                prefix[row * stride + col + 1] =
+                        prefix[row * stride + col] + mSeatCosts[row * (mMaxCol + 1) + col];
+            }
+        }
+        return prefix;
+    }
+
+    private double getBlockCost(double[] prefix, int row, int col, int count) {
+        final int base = row * (mMaxCol + 2);
+        return prefix[base + col + count] - prefix[base + col];
+    }
+
+    /**
+     * 计算每排可推荐的 count 个连续座位的最小代价，没有可推荐的座位时为 Double.MAX_VALUE。
+     */
+    private void fillMinBlockCosts(
+            double[] prefix, int count, boolean checkRegular, double[] minCosts) {
+        for (int row = 0; row <= mMaxRow; row++) {
+            double minCost = Double.MAX_VALUE;
+            for (int col = 0; col <= mMaxCol - count + 1; col++) {
+                double cost = getBlockCost(prefix, row, col, count);
+                if (cost < minCost && isBlockCandidate(row, col, count, checkRegular)) {
+                    minCost = cost;
                 }
             }
-            return available;
+            minCosts[row] = minCost;
         }
-        return false;
     }
 
-    void addIgnoreSeats(int recommendCount, List<SeatData> ignoreSeats) {
-        if (Utils.isEmpty(ignoreSeats)) {
-            return;
+    /**
+     * 代价相同时排、列小的排在前面，保证结果稳定。
+     */
+    private static boolean isBetter(float score, int key, float otherScore, int otherKey) {
+        return score < otherScore || (score == otherScore && key < otherKey);
+    }
+
+    private static void siftUp(float[] scores, int[] keys, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!isBetter(scores[parent], keys[parent], scores[index], keys[index])) {
+                return;
+            }
+            swap(scores, keys, parent, index);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(float[] scores, int[] keys, int index, int size) {
+        while (true) {
+            int worst = index;
+            int left = index * 2 + 1;
+            int right = left + 1;
+            if (left < size && isBetter(scores[worst], keys[worst], scores[left], keys[left])) {
+                worst = left;
+            }
+            if (right < size && isBetter(scores[worst], keys[worst], scores[right], keys[right])) {
+                worst = right;
+            }
+            if (worst == index) {
+                return;
+            }
+            swap(scores, keys, worst, index);
+            index = worst;
+        }
+    }
+
+    private static void swap(float[] scores, int[] keys, int i, int j) {
+        float score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+        int key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+    }
+
+    /**
+     * 获取离中心由近到远的座位位置，相同大小的影厅只排序一次。
+     *
+     * @param maxRow  最大排
+     * @param maxCol  最大列
+     * @param centerX 中心的列
+     * @param centerY 中心的排
+     * @return SeatGrid.packKey(row, col) 的数组
+     */
+    private static int[] obtainRanking(int maxRow, int maxCol, int centerX, int centerY) {
+        if (maxRow > MAX_RANK_INDEX || maxCol > MAX_RANK_INDEX) {
+            return EMPTY_RANKING;
+        }
+
+        final Long key = rankingKey(maxRow, maxCol, centerX, centerY);
+        int[] ranking = sRankings.get(key);
+        if (ranking == null) {
+            ranking = buildRanking(maxRow, maxCol, centerX, centerY);
+            sRankings.put(key, ranking);
+        }
+        return ranking;
+    }
+
+    private static long rankingKey(int maxRow, int maxCol, int centerX, int centerY) {
+        return ((long) maxRow << 48) | ((long) maxCol << 32) | ((long) centerY << 16) | centerX;
+    }
+
+    /**
+     * 按离中心的距离排序，距离相同时依次按横向距离小、排大、列大排在前面。
+     */
+    private static int[] buildRanking(int maxRow, int maxCol, int centerX, int centerY) {
+        final int count = (maxRow + 1) * (maxCol + 1);
+        final long[] sortKeys = new long[count];
+        int index = 0;
+        for (int row = 0; row <= maxRow; row++) {
+            for (int col = 0; col <= maxCol; col++) {
+                long dx = Math.abs(centerX - col);
+                long dy = Math.abs(centerY - row);
+                // 距离的平方占 25 位，横向距离、反向的排、列各占 12 位
+                sortKeys[index++] = ((dx * dx + dy * dy) << 36)
+                        | (dx << 24)
+                        | ((MAX_RANK_INDEX - row) << 12)
+                        | (MAX_RANK_INDEX - col);
+            }
         }
+        Arrays.sort(sortKeys);
 
-        List<List<SeatData>> seats = mIgnoreSeats.get(recommendCount);
-        if (seats == null) {
-            seats = new ArrayList<>();
+        final int[] ranking = new int[count];
+        for (int i = 0; i < count; i++) {
+            int row = MAX_RANK_INDEX - (int) ((sortKeys[i] >>> 12) & MAX_RANK_INDEX);
+            int col = MAX_RANK_INDEX - (int) (sortKeys[i] & MAX_RANK_INDEX);
+            ranking[i] = SeatGrid.packKey(row, col);
         }
-        seats.add(new ArrayList<>(ignoreSeats));
-        mIgnoreSeats.put(recommendCount, seats);
+        return ranking;
     }
 
     /**
-     * 用于查找推荐座位
+     * 同时推荐多组座位的搜索状态。
      */
-    private class PointComparator implements Comparator<Point> {
+    private class GroupSearch {
+
+        private final int[] mCounts;
+
+        /**
+         * 搜索的顺序，座位多的组先放置
+         */
+        private final int[] mOrder;
+
+        private final boolean isCheckRegular;
+        private final long mDeadline;
+        private final double[] mPrefix;
+
+        /**
+         * 已放置的座位
+         */
+        private final SeatBits mTakenBits = new SeatBits();
 
-        private Point point;
+        /**
+         * mLowerBounds[i]：第 i 组及之后各组单独放置时的最小代价之和
+         */
+        private final double[] mLowerBounds;
 
-        PointComparator(Point point) {
-            this.point = point;
+        private final int[] mKeys;
+        private int[][] mCandidateKeys;
+        private float[][] mCandidateCosts;
+
+        /**
+         * 所有组放置后才检查规则，否则每放置一组就检查该排
+         */
+        private boolean isCheckAtLeaf;
+
+        final int[] mBestKeys;
+        double mBestCost = Double.MAX_VALUE;
+
+        private int mNodeCount;
+        boolean isTimeout;
+
+        GroupSearch(int[] counts, boolean checkRegular, long deadline) {
+            mCounts = counts;
+            isCheckRegular = checkRegular;
+            mDeadline = deadline;
+            mPrefix = buildCostPrefix();
+            mTakenBits.reset(mMaxRow, mMaxCol);
+
+            final int groupCount = counts.length;
+            mOrder = new int[groupCount];
+            for (int i = 0; i < groupCount; i++) {
+                mOrder[i] = i;
+            }
+            // 插入排序，组数很少
+            for (int i = 1; i < groupCount; i++) {
+                int g = mOrder[i];
+                int j = i - 1;
+                while (j >= 0 && counts[mOrder[j]] < counts[g]) {
+                    mOrder[j + 1] = mOrder[j];
+                    j--;
+                }
+                mOrder[j + 1] = g;
+            }
+
+            mLowerBounds = new double[groupCount + 1];
+            final double[] minCosts = new double[mMaxRow + 1];
+            for (int i = groupCount - 1; i >= 0; i--) {
+                fillMinBlockCosts(mPrefix, counts[mOrder[i]], false, minCosts);
+                double minCost = Double.MAX_VALUE;
+                for (double cost : minCosts) {
+                    minCost = Math.min(minCost, cost);
+                }
+                mLowerBounds[i] = mLowerBounds[i + 1] + minCost;
+            }
+
+            mKeys = new int[groupCount];
+            mBestKeys = new int[groupCount];
         }
 
-        @Override
-        public int compare(Point lhs, Point rhs) {
-            int lx = Math.abs(point.x - lhs.x);
-            int ly = Math.abs(point.y - lhs.y);
-            int rx = Math.abs(point.x - rhs.x);
-            int ry = Math.abs(point.y - rhs.y);
+        /**
+         * 开始新一轮搜索，保留已找到的最优结果用于剪枝。
+         *
+         * @param maxCandidates 每组最多尝试的候选位置数量
+         * @param checkAtLeaf   是否在所有组放置后才检查规则
+         */
+        void start(int maxCandidates, boolean checkAtLeaf) {
+            mCandidateKeys = new int[mOrder.length][maxCandidates];
+            mCandidateCosts = new float[mOrder.length][maxCandidates];
+            isCheckAtLeaf = checkAtLeaf;
+        }
 
-            // 点之间的距离排序
-            int result = Double.compare(sqrt(lx, ly), sqrt(rx, ry));
-            if (result == 0) {
-                int dX = lx - rx;
-                int dY = ly - ry;
-                // 距离小的排前面
-                if (dX < dY) {
-                    return -1;
-                } else {
-                    if (dX == 0) {
-                        result = -Double.compare(lhs.y, rhs.y);
-                        if (result != 0) {
-                            return result;
-                        }
+        void search(int depth, double cost) {
+            if (isTimeout) {
+                return;
+            }
+            if ((++mNodeCount & 0x3F) == 0 && System.nanoTime() - mDeadline > 0) {
+                isTimeout = true;
+                return;
+            }
+
+            if (depth == mOrder.length) {
+                // 不在所有组放置后检查时，每次放置时都检查过该排
+                if (!isCheckRegular || !isCheckAtLeaf || isPlacementLegal()) {
+                    mBestCost = cost;
+                    System.arraycopy(mKeys, 0, mBestKeys, 0, mKeys.length);
+                }
+                return;
+            }
+            if (cost + mLowerBounds[depth] >= mBestCost) {
+                return;
+            }
+
+            final int group = mOrder[depth];
+            final int count = mCounts[group];
+            // 数量相同的组只按位置递增的顺序放置，避免重复搜索
+            int minKey = -1;
+            if (depth > 0 && mCounts[mOrder[depth - 1]] == count) {
+                minKey = mKeys[mOrder[depth - 1]];
+            }
+
+            final int[] keys = mCandidateKeys[depth];
+            final float[] costs = mCandidateCosts[depth];
+            final int size = collectCandidates(count, minKey, keys, costs);
+            for (int i = 0; i < size; i++) {
+                double newCost = cost + costs[i];
+                if (newCost + mLowerBounds[depth + 1] >= mBestCost) {
+                    // 候选按代价从小到大排列
+                    break;
+                }
+
+                int row = SeatGrid.keyRow(keys[i]);
+                int col = SeatGrid.keyCol(keys[i]);
+                setTaken(row, col, count, true);
+                mKeys[group] = keys[i];
+                search(depth + 1, newCost);
+                setTaken(row, col, count, false);
+                if (isTimeout) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * 查找不与已放置的座位重叠、代价最小的若干个位置，按代价从小到大放入 keys、costs。
+         * 校验规则且不在所有组放置后检查时，只保留放置后该排合法的位置。
+         *
+         * @return 候选的数量
+         */
+        private int collectCandidates(int count, int minKey, int[] keys, float[] costs) {
+            int heapSize = 0;
+            for (int row = 0; row <= mMaxRow; row++) {
+                for (int col = 0; col <= mMaxCol - count + 1; col++) {
+                    int key = SeatGrid.packKey(row, col);
+                    if (key <= minKey
+                            || !isBlockAvailable(row, col, count)
+                            || mTakenBits.isAnySet(row, col, col + count - 1)) {
+                        continue;
+                    }
+
+                    float cost = (float) getBlockCost(mPrefix, row, col, count);
+                    if (heapSize == keys.length && !isBetter(cost, key, costs[0], keys[0])) {
+                        continue;
+                    }
+                    // 代价足够小时才检查规则，检查需要遍历整排
+                    if (isCheckRegular && !isCheckAtLeaf && !isLegalAfterTaken(row, col, count)) {
+                        continue;
                     }
-                    if (dY == 0) {
-                        result = -Double.compare(lhs.x, rhs.x);
+
+                    if (heapSize < keys.length) {
+                        costs[heapSize] = cost;
+                        keys[heapSize] = key;
+                        siftUp(costs, keys, heapSize++);
+                    } else {
+                        costs[0] = cost;
+                        keys[0] = key;
+                        siftDown(costs, keys, 0, heapSize);
                     }
                 }
             }
-            return result;
+
+            // 堆排序，得到从小到大的顺序
+            for (int i = heapSize - 1; i > 0; i--) {
+                swap(costs, keys, 0, i);
+                siftDown(costs, keys, 0, i);
+            }
+            return heapSize;
+        }
+
+        private void setTaken(int row, int col, int count, boolean taken) {
+            for (int j = 0; j < count; j++) {
+                mTakenBits.set(row, col + j, taken);
+            }
+        }
+
+        private boolean isPlacementLegal() {
+            for (int key : mKeys) {
+                if (!SeatSelectRegular.isRowLegal(mFreeBits, mTakenBits, SeatGrid.keyRow(key))) {
+                    return false;
+                }
+            }
+            return true;
         }
 
-        private double sqrt(int x, int y) {
-            return Math.sqrt(x * x + y * y);
+        /**
+         * 判断放置从 col 开始的 count 个座位后，该排已放置的座位是否合法。
+         */
+        private boolean isLegalAfterTaken(int row, int col, int count) {
+            setTaken(row, col, count, true);
+            boolean legal = SeatSelectRegular.isRowLegal(mFreeBits, mTakenBits, row);
+            setTaken(row, col, count, false);
+            return legal;
         }
     }
 }
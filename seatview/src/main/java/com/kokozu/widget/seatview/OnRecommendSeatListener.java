@@ -0,0 +1,16 @@
+package com.kokozu.widget.seatview;
+
+import java.util.List;
+
+/**
+ * 异步推荐座位的监听事件。
+ */
+public interface OnRecommendSeatListener {
+
+    /**
+     * 推荐座位完成，推荐的座位已被选中。
+     *
+     * @param seats 推荐的座位，没有合适的座位时为空列表
+     */
+    void onRecommendSeats(List<SeatData> seats);
+}
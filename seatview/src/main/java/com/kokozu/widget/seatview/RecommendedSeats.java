@@ -0,0 +1,29 @@
+package com.kokozu.widget.seatview;
+
+import java.util.List;
+
+/**
+ * 一组推荐的座位。
+ */
+public class RecommendedSeats {
+
+    /**
+     * 推荐的座位，按列从小到大排列。
+     */
+    public final List<SeatData> seats;
+
+    /**
+     * 推荐座位的代价，越小越好。设置了评分模型时为座位代价的平均值，否则为按离中心的距离检查时的序号。
+     */
+    public final float score;
+
+    RecommendedSeats(List<SeatData> seats, float score) {
+        this.seats = seats;
+        this.score = score;
+    }
+
+    @Override
+    public String toString() {
+        return "RecommendedSeats{" + "seats=" + seats + ", score=" + score + '}';
+    }
+}
@@ -0,0 +1,135 @@
+package com.kokozu.widget.seatview;
+
+import java.util.Arrays;
+
+/**
+ * 按排存储的座位位图，每排用若干个 long 记录 [0, maxCol] 列。
+ */
+class SeatBits {
+
+    private static final long[] EMPTY_BITS = new long[0];
+
+    private int mMaxRow = -1, mMaxCol = -1;
+    private int mWordsPerRow;
+
+    /**
+     * index：row * mWordsPerRow + (col >>> 6)
+     */
+    private long[] mBits = EMPTY_BITS;
+
+    /**
+     * 按新的范围清空位图。
+     *
+     * @param maxRow 最大排
+     * @param maxCol 最大列
+     */
+    void reset(int maxRow, int maxCol) {
+        mMaxRow = maxRow;
+        mMaxCol = maxCol;
+        mWordsPerRow = maxCol < 0 ? 0 : (maxCol >>> 6) + 1;
+
+        final int length = Math.max(0, (maxRow + 1) * mWordsPerRow);
+        if (mBits.length != length) {
+            mBits = length == 0 ? EMPTY_BITS : new long[length];
+        } else {
+            Arrays.fill(mBits, 0);
+        }
+    }
+
+    SeatBits copy() {
+        SeatBits bits = new SeatBits();
+        bits.mMaxRow = mMaxRow;
+        bits.mMaxCol = mMaxCol;
+        bits.mWordsPerRow = mWordsPerRow;
+        bits.mBits = mBits.length == 0 ? EMPTY_BITS : mBits.clone();
+        return bits;
+    }
+
+    void clear() {
+        reset(-1, -1);
+    }
+
+    void set(int row, int col, boolean value) {
+        if (!contains(row, col)) {
+            return;
+        }
+        final int index = row * mWordsPerRow + (col >>> 6);
+        if (value) {
+            mBits[index] |= 1L << col;
+        } else {
+            mBits[index] &= ~(1L << col);
+        }
+    }
+
+    boolean get(int row, int col) {
+        return contains(row, col)
+                && (mBits[row * mWordsPerRow + (col >>> 6)] & (1L << col)) != 0;
+    }
+
+    /**
+     * 判断 [from, to] 列是否全部置位，超出范围时返回 false。
+     */
+    boolean isAllSet(int row, int from, int to) {
+        if (from > to || !contains(row, from) || !contains(row, to)) {
+            return false;
+        }
+
+        final int base = row * mWordsPerRow;
+        final int first = from >>> 6;
+        final int last = to >>> 6;
+        for (int w = first; w <= last; w++) {
+            long mask = rangeMask(w, first, last, from, to);
+            if ((mBits[base + w] & mask) != mask) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 判断 [from, to] 列是否有任意一位置位，超出范围的部分忽略。
+     */
+    boolean isAnySet(int row, int from, int to) {
+        if (row < 0 || row > mMaxRow) {
+            return false;
+        }
+        from = Math.max(0, from);
+        to = Math.min(mMaxCol, to);
+        if (from > to) {
+            return false;
+        }
+
+        final int base = row * mWordsPerRow;
+        final int first = from >>> 6;
+        final int last = to >>> 6;
+        for (int w = first; w <= last; w++) {
+            if ((mBits[base + w] & rangeMask(w, first, last, from, to)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int getMaxRow() {
+        return mMaxRow;
+    }
+
+    int getMaxCol() {
+        return mMaxCol;
+    }
+
+    private boolean contains(int row, int col) {
+        return row >= 0 && row <= mMaxRow && col >= 0 && col <= mMaxCol;
+    }
+
+    private static long rangeMask(int w, int first, int last, int from, int to) {
+        long mask = -1L;
+        if (w == first) {
+            mask &= -1L << from;
+        }
+        if (w == last) {
+            mask &= -1L >>> (63 - (to & 63));
+        }
+        return mask;
+    }
+}
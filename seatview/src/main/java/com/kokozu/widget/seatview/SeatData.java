@@ -126,8 +126,8 @@ public class SeatData implements Parcelable {
         return false;
     }
 
-    String seatKey() {
-        return point.x + "-" + point.y;
+    int seatKey() {
+        return SeatGrid.packKey(point.x, point.y);
     }
 
     @Retention(RetentionPolicy.SOURCE)
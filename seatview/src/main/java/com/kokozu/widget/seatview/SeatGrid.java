@@ -0,0 +1,445 @@
+package com.kokozu.widget.seatview;
+
+import android.graphics.Point;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 按排、列索引的座位网格，用于快速查找可见区域内的座位。每个位置的状态、类型用 byte 数组保存，
+ * 绘制和查找推荐座位时不需要座位对象；座位数据来自 {@link SeatSource} 时，座位对象在第一次获取时才创建。
+ * <p>
+ * SeatView、SeatThumbnailView 和 BestSeatFinder 共用同一个网格，修改后通过
+ * {@link OnSeatChangedListener} 通知发生变化的座位。
+ */
+class SeatGrid {
+
+    /**
+     * 该位置没有座位
+     */
+    static final int NO_SEAT = -1;
+
+    /**
+     * 排、列各占 16 位
+     */
+    private static final int KEY_SHIFT = 16;
+    private static final int KEY_MASK = 0xFFFF;
+
+    private static final SeatData[] EMPTY_SEATS = new SeatData[0];
+    private static final byte[] EMPTY_BYTES = new byte[0];
+    private static final int[] EMPTY_INTS = new int[0];
+
+    private int mMaxRow, mMaxCol;
+
+    /**
+     * 座位对象，未创建时为 null，index：row * (mMaxCol + 1) + col
+     */
+    private SeatData[] mSeats = EMPTY_SEATS;
+
+    /**
+     * 座位的状态、类型，没有座位时状态为 NO_SEAT，index 同 mSeats
+     */
+    private byte[] mStates = EMPTY_BYTES;
+    private byte[] mTypes = EMPTY_BYTES;
+
+    /**
+     * 座位数据来自 SeatSource 时，每个位置在 mSource 中的索引，index 同 mSeats
+     */
+    private SeatSource mSource;
+    private int[] mSourceIndexes = EMPTY_INTS;
+
+    /**
+     * 每排、每列的座位数量
+     */
+    private int[] mRowCounts = EMPTY_INTS;
+    private int[] mColCounts = EMPTY_INTS;
+
+    private int mSize;
+    private int mMinRow;
+
+    private final ArrayList<OnSeatChangedListener> mListeners = new ArrayList<>(3);
+
+    /**
+     * 根据座位列表重建网格。
+     *
+     * @param seats 座位列表
+     */
+    void setSeats(List<SeatData> seats) {
+        reset();
+        final int size = Utils.size(seats);
+        if (size == 0) {
+            notifySeatsChanged();
+            return;
+        }
+
+        int maxRow = 0;
+        int maxCol = 0;
+        for (int i = 0; i < size; i++) {
+            SeatData seat = seats.get(i);
+            maxRow = Math.max(seat.point.x, maxRow);
+            maxCol = Math.max(seat.point.y, maxCol);
+        }
+        if (allocate(maxRow, maxCol)) {
+            for (int i = 0; i < size; i++) {
+                SeatData seat = seats.get(i);
+                if (contains(seat.point.x, seat.point.y)) {
+                    mSeats[add(seat.point.x, seat.point.y, seat.state, seat.type)] = seat;
+                }
+            }
+        }
+        notifySeatsChanged();
+    }
+
+    /**
+     * 根据座位适配器重建网格，不创建座位对象。
+     *
+     * @param source 座位数据
+     */
+    void setSeats(SeatSource source) {
+        reset();
+        final int size = source == null ? 0 : source.getSeatCount();
+        if (size == 0) {
+            notifySeatsChanged();
+            return;
+        }
+
+        int maxRow = 0;
+        int maxCol = 0;
+        for (int i = 0; i < size; i++) {
+            maxRow = Math.max(source.getRow(i), maxRow);
+            maxCol = Math.max(source.getCol(i), maxCol);
+        }
+        if (!allocate(maxRow, maxCol)) {
+            notifySeatsChanged();
+            return;
+        }
+
+        mSource = source;
+        mSourceIndexes = new int[mStates.length];
+        for (int i = 0; i < size; i++) {
+            int row = source.getRow(i);
+            int col = source.getCol(i);
+            if (contains(row, col)) {
+                int index = add(row, col, source.getState(i), source.getType(i));
+                mSeats[index] = null;
+                mSourceIndexes[index] = i;
+            }
+        }
+        notifySeatsChanged();
+    }
+
+    /**
+     * 判断该位置是否为适配器中的座位。
+     *
+     * @param index 座位在适配器中的索引
+     * @return 是否为该座位
+     */
+    boolean isSourceSeat(int row, int col, int index) {
+        if (mSource == null || !contains(row, col)) {
+            return false;
+        }
+        final int i = row * (mMaxCol + 1) + col;
+        return mStates[i] != NO_SEAT && mSourceIndexes[i] == index;
+    }
+
+    /**
+     * 从适配器重新读取座位的类型和文字，已创建的座位对象同步修改。状态不在这里更新。
+     *
+     * @return 类型是否发生了变化
+     */
+    boolean updateSourceSeat(int row, int col) {
+        final int i = row * (mMaxCol + 1) + col;
+        final int index = mSourceIndexes[i];
+        final int type = mSource.getType(index);
+        final boolean typeChanged = mTypes[i] != type;
+        mTypes[i] = (byte) type;
+        if (mSeats[i] != null) {
+            mSeats[i].type = type;
+            mSource.updateSeatData(index, mSeats[i]);
+        }
+        if (typeChanged) {
+            notifySeatChanged(row, col);
+        }
+        return typeChanged;
+    }
+
+    /**
+     * 放入座位，同一位置已有的座位会被替换。超出网格范围的座位会被忽略。
+     *
+     * @param seat 座位
+     */
+    void put(SeatData seat) {
+        int row = seat.point.x;
+        int col = seat.point.y;
+        if (!contains(row, col)) {
+            return;
+        }
+        final int index = row * (mMaxCol + 1) + col;
+        final int oldState = mStates[index];
+        final int oldType = mTypes[index];
+        mSeats[add(row, col, seat.state, seat.type)] = seat;
+        if (oldState != seat.state || oldType != seat.type) {
+            notifySeatChanged(row, col);
+        }
+    }
+
+    /**
+     * 获取座位对象，座位数据来自 SeatSource 时第一次获取才创建。
+     *
+     * @return 座位，没有座位时返回 null
+     */
+    SeatData get(int row, int col) {
+        if (!contains(row, col)) {
+            return null;
+        }
+        final int index = row * (mMaxCol + 1) + col;
+        SeatData seat = mSeats[index];
+        if (seat == null && mStates[index] != NO_SEAT) {
+            if (mSource != null) {
+                seat = mSource.newSeatData(mSourceIndexes[index], mStates[index]);
+            } else {
+                // 副本不读取适配器，只创建带位置的座位
+                seat = new SeatData();
+                seat.point = new Point(row, col);
+                seat.state = mStates[index];
+                seat.type = mTypes[index];
+            }
+            mSeats[index] = seat;
+        }
+        return seat;
+    }
+
+    boolean hasSeat(int row, int col) {
+        return getState(row, col) != NO_SEAT;
+    }
+
+    /**
+     * 获取座位的状态。
+     *
+     * @return 状态，没有座位时返回 NO_SEAT
+     */
+    int getState(int row, int col) {
+        if (!contains(row, col)) {
+            return NO_SEAT;
+        }
+        return mStates[row * (mMaxCol + 1) + col];
+    }
+
+    /**
+     * 获取座位的类型。
+     *
+     * @return 类型，没有座位时返回 TYPE_NORMAL
+     */
+    int getType(int row, int col) {
+        if (!contains(row, col)) {
+            return SeatData.TYPE_NORMAL;
+        }
+        return mTypes[row * (mMaxCol + 1) + col];
+    }
+
+    /**
+     * 修改座位的状态，已创建的座位对象同步修改。
+     *
+     * @return 状态是否发生了变化
+     */
+    boolean setState(int row, int col, @SeatData.SeatState int state) {
+        if (!contains(row, col)) {
+            return false;
+        }
+        final int index = row * (mMaxCol + 1) + col;
+        if (mStates[index] == NO_SEAT || mStates[index] == state) {
+            return false;
+        }
+        mStates[index] = (byte) state;
+        if (mSeats[index] != null) {
+            mSeats[index].state = state;
+        }
+        notifySeatChanged(row, col);
+        return true;
+    }
+
+    boolean hasSeatInRow(int row) {
+        return row >= 0 && row <= mMaxRow && mRowCounts[row] > 0;
+    }
+
+    boolean hasSeatInCol(int col) {
+        return col >= 0 && col <= mMaxCol && mColCounts[col] > 0;
+    }
+
+    int getMaxRow() {
+        return mMaxRow;
+    }
+
+    int getMaxCol() {
+        return mMaxCol;
+    }
+
+    /**
+     * 获取有座位的最小排号。
+     *
+     * @return 最小排号，无座位时返回 0
+     */
+    int getMinRow() {
+        return mMinRow;
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * 复制网格，座位对象不会被复制。副本会在后台线程中使用，不读取适配器，
+     * 未创建的座位对象只包含位置、状态和类型。
+     *
+     * @return 新的网格
+     */
+    SeatGrid copy() {
+        SeatGrid grid = new SeatGrid();
+        grid.mMaxRow = mMaxRow;
+        grid.mMaxCol = mMaxCol;
+        grid.mSeats = mSeats.length == 0 ? EMPTY_SEATS : mSeats.clone();
+        grid.mStates = mStates.length == 0 ? EMPTY_BYTES : mStates.clone();
+        grid.mTypes = mTypes.length == 0 ? EMPTY_BYTES : mTypes.clone();
+        grid.mRowCounts = mRowCounts.length == 0 ? EMPTY_INTS : mRowCounts.clone();
+        grid.mColCounts = mColCounts.length == 0 ? EMPTY_INTS : mColCounts.clone();
+        grid.mSize = mSize;
+        grid.mMinRow = mMinRow;
+        return grid;
+    }
+
+    void clear() {
+        reset();
+        notifySeatsChanged();
+    }
+
+    void addOnSeatChangedListener(OnSeatChangedListener listener) {
+        if (!mListeners.contains(listener)) {
+            mListeners.add(listener);
+        }
+    }
+
+    void removeOnSeatChangedListener(OnSeatChangedListener listener) {
+        mListeners.remove(listener);
+    }
+
+    private void notifySeatsChanged() {
+        for (int i = 0; i < mListeners.size(); i++) {
+            mListeners.get(i).onSeatsChanged();
+        }
+    }
+
+    private void notifySeatChanged(int row, int col) {
+        for (int i = 0; i < mListeners.size(); i++) {
+            mListeners.get(i).onSeatChanged(row, col);
+        }
+    }
+
+    private void reset() {
+        mMaxRow = mMaxCol = 0;
+        mSeats = EMPTY_SEATS;
+        mStates = mTypes = EMPTY_BYTES;
+        mSource = null;
+        mSourceIndexes = EMPTY_INTS;
+        mRowCounts = mColCounts = EMPTY_INTS;
+        mSize = 0;
+        mMinRow = 0;
+    }
+
+    /**
+     * 获取所有座位，按排、列顺序排列。
+     *
+     * @return 座位列表
+     */
+    List<SeatData> toList() {
+        List<SeatData> seats = new ArrayList<>(mSize);
+        for (int row = 0; row <= mMaxRow && mSize > 0; row++) {
+            for (int col = 0; col <= mMaxCol; col++) {
+                SeatData seat = get(row, col);
+                if (seat != null) {
+                    seats.add(seat);
+                }
+            }
+        }
+        return seats;
+    }
+
+    /**
+     * 把排、列打包成一个 int，作为座位的 key。
+     *
+     * @param row 排
+     * @param col 列
+     * @return key
+     */
+    static int packKey(int row, int col) {
+        return (row << KEY_SHIFT) | (col & KEY_MASK);
+    }
+
+    static int keyRow(int key) {
+        return key >>> KEY_SHIFT;
+    }
+
+    static int keyCol(int key) {
+        return key & KEY_MASK;
+    }
+
+    private boolean allocate(int maxRow, int maxCol) {
+        if (maxRow <= 0 || maxCol <= 0) {
+            return false;
+        }
+
+        mMaxRow = maxRow;
+        mMaxCol = maxCol;
+        final int length = (maxRow + 1) * (maxCol + 1);
+        mSeats = new SeatData[length];
+        mStates = new byte[length];
+        mTypes = new byte[length];
+        Arrays.fill(mStates, (byte) NO_SEAT);
+        mRowCounts = new int[maxRow + 1];
+        mColCounts = new int[maxCol + 1];
+        return true;
+    }
+
+    /**
+     * 在该位置放入座位的状态、类型，更新计数。
+     *
+     * @return 在数组中的位置
+     */
+    private int add(int row, int col, int state, int type) {
+        int index = row * (mMaxCol + 1) + col;
+        if (mStates[index] == NO_SEAT) {
+            mSize++;
+            mRowCounts[row]++;
+            mColCounts[col]++;
+            if (mSize == 1 || row < mMinRow) {
+                mMinRow = row;
+            }
+        }
+        mStates[index] = (byte) state;
+        mTypes[index] = (byte) type;
+        return index;
+    }
+
+    private boolean contains(int row, int col) {
+        return row >= 0 && row <= mMaxRow && col >= 0 && col <= mMaxCol && mStates.length > 0;
+    }
+
+    /**
+     * 座位网格变化的监听。
+     */
+    interface OnSeatChangedListener {
+
+        /**
+         * 所有座位都发生了变化，例如重新设置了座位数据或清空。
+         */
+        void onSeatsChanged();
+
+        /**
+         * 一个座位的状态或类型发生了变化。
+         *
+         * @param row 排
+         * @param col 列
+         */
+        void onSeatChanged(int row, int col);
+    }
+}
@@ -0,0 +1,146 @@
+package com.kokozu.widget.seatview;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+/**
+ * 座位图的磁盘缓存，以影厅 id 和座位图版本为 key 保存 {@link SeatMapFile}。
+ * 同一个影厅写入新版本时会删除旧版本的文件。
+ */
+public class SeatMapCache {
+
+    private static final String SUFFIX = ".seatmap";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File mDirectory;
+
+    /**
+     * @param directory 缓存的目录，例如 new File(context.getCacheDir(), "seatmap")
+     */
+    public SeatMapCache(File directory) {
+        mDirectory = directory;
+    }
+
+    /**
+     * 读取缓存的座位图。
+     *
+     * @param hallId        影厅 id
+     * @param layoutVersion 座位图的版本
+     * @return 座位数据，没有缓存或文件已损坏时返回 null
+     */
+    public SeatTable get(String hallId, int layoutVersion) {
+        File file = getFile(hallId, layoutVersion);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try {
+            return SeatMapFile.read(file);
+        } catch (IOException e) {
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * 缓存座位图。
+     *
+     * @param hallId        影厅 id
+     * @param layoutVersion 座位图的版本
+     * @param table         座位数据
+     * @throws IOException 写入失败
+     */
+    public void put(String hallId, int layoutVersion, SeatTable table) throws IOException {
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            throw new IOException("Cannot create cache directory: " + mDirectory);
+        }
+
+        File file = getFile(hallId, layoutVersion);
+        File temp = new File(mDirectory, file.getName() + ".tmp");
+        try {
+            SeatMapFile.write(table, temp);
+            if (!temp.renameTo(file)) {
+                throw new IOException("Cannot rename " + temp + " to " + file);
+            }
+        } finally {
+            temp.delete();
+        }
+        removeOtherVersions(hallId, file);
+    }
+
+    /**
+     * 读取缓存的座位图，没有缓存时解析 JSON 并写入缓存。
+     *
+     * @param hallId        影厅 id
+     * @param layoutVersion 座位图的版本
+     * @param json          座位图的 JSON，格式见 {@link SeatMapParser}，不会被关闭
+     * @return 座位数据
+     * @throws IOException 解析或写入失败
+     */
+    public SeatTable get(String hallId, int layoutVersion, Reader json) throws IOException {
+        SeatTable table = get(hallId, layoutVersion);
+        if (table == null) {
+            table = SeatMapParser.parse(json);
+            put(hallId, layoutVersion, table);
+        }
+        return table;
+    }
+
+    /**
+     * 删除影厅所有版本的缓存。
+     *
+     * @param hallId 影厅 id
+     */
+    public void remove(String hallId) {
+        removeOtherVersions(hallId, null);
+    }
+
+    /**
+     * 删除所有缓存。
+     */
+    public void clear() {
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.getName().endsWith(SUFFIX)) {
+                file.delete();
+            }
+        }
+    }
+
+    private void removeOtherVersions(String hallId, File keep) {
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        final String prefix = getPrefix(hallId);
+        for (File file : files) {
+            String name = file.getName();
+            if (name.startsWith(prefix) && name.endsWith(SUFFIX) && !file.equals(keep)) {
+                file.delete();
+            }
+        }
+    }
+
+    private File getFile(String hallId, int layoutVersion) {
+        return new File(mDirectory, getPrefix(hallId) + layoutVersion + SUFFIX);
+    }
+
+    /**
+     * 影厅 id 按 UTF-8 字节转为十六进制，避免文件名中出现非法字符。
+     */
+    private static String getPrefix(String hallId) {
+        byte[] bytes = hallId.getBytes(UTF_8);
+        StringBuilder builder = new StringBuilder(bytes.length * 2 + 1);
+        for (byte b : bytes) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+            builder.append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.append('_').toString();
+    }
+}
@@ -0,0 +1,175 @@
+package com.kokozu.widget.seatview;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * 二进制的座位图文件。读取时通过内存映射直接填充 {@link SeatTable} 的列，文字在第一次获取时才解码。
+ * 文件格式，整数均为大端序：
+ * <pre>
+ * header:  magic(4) | version(4) | seatCount(4) | stringCount(4)
+ * seats:   seatCount 个定长记录，row(2) | col(2) | state(1) | type(1) | 4 个文字的 id(4 * 4)
+ * strings: stringCount 个 offset(4) | length(4)，之后是所有文字的 UTF-8 字节
+ * </pre>
+ */
+public final class SeatMapFile {
+
+    /**
+     * 文件格式的版本
+     */
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x53454154;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 6 + SeatTable.LABEL_COUNT * 4;
+    private static final int STRING_ENTRY_SIZE = 8;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private SeatMapFile() {
+    }
+
+    /**
+     * 通过内存映射读取座位图。
+     *
+     * @param file 座位图文件
+     * @return 座位数据
+     * @throws IOException 读取失败，或文件的格式、版本不正确
+     */
+    public static SeatTable read(File file) throws IOException {
+        MappedByteBuffer buffer;
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            // 映射在关闭文件后仍然有效
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            in.close();
+        }
+
+        final long fileSize = buffer.capacity();
+        if (fileSize < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a seat map file: " + file);
+        }
+        final int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported seat map version: " + version);
+        }
+        final int seatCount = buffer.getInt(8);
+        final int stringCount = buffer.getInt(12);
+        final long stringsStart = HEADER_SIZE + (long) seatCount * RECORD_SIZE;
+        if (seatCount < 0
+                || stringCount < 0
+                || stringsStart + (long) stringCount * STRING_ENTRY_SIZE > fileSize) {
+            throw new IOException("Corrupted seat map file: " + file);
+        }
+
+        int[] rows = new int[seatCount];
+        int[] cols = new int[seatCount];
+        byte[] states = new byte[seatCount];
+        byte[] types = new byte[seatCount];
+        int[] labels = new int[seatCount * SeatTable.LABEL_COUNT];
+        buffer.position(HEADER_SIZE);
+        for (int i = 0; i < seatCount; i++) {
+            rows[i] = buffer.getShort() & 0xFFFF;
+            cols[i] = buffer.getShort() & 0xFFFF;
+            states[i] = buffer.get();
+            types[i] = buffer.get();
+            for (int j = 0; j < SeatTable.LABEL_COUNT; j++) {
+                int id = buffer.getInt();
+                if (id < SeatStrings.NO_STRING || id >= stringCount) {
+                    throw new IOException("Corrupted seat map file: " + file);
+                }
+                labels[i * SeatTable.LABEL_COUNT + j] = id;
+            }
+        }
+
+        int[] offsets = new int[stringCount];
+        int[] lengths = new int[stringCount];
+        for (int i = 0; i < stringCount; i++) {
+            offsets[i] = buffer.getInt();
+            lengths[i] = buffer.getInt();
+            if (offsets[i] < 0 || lengths[i] < 0 || (long) offsets[i] + lengths[i] > fileSize) {
+                throw new IOException("Corrupted seat map file: " + file);
+            }
+        }
+
+        SeatStrings strings = new SeatStrings(buffer, offsets, lengths);
+        return new SeatTable(seatCount, rows, cols, states, types, labels, strings);
+    }
+
+    /**
+     * 把座位图写入文件。
+     *
+     * @param table 座位数据
+     * @param file  座位图文件
+     * @throws IOException 写入失败
+     */
+    public static void write(SeatTable table, File file) throws IOException {
+        final int seatCount = table.size();
+        final SeatStrings strings = table.getStrings();
+        final int stringCount = strings.size();
+
+        byte[][] stringBytes = new byte[stringCount][];
+        int stringBytesSize = 0;
+        for (int i = 0; i < stringCount; i++) {
+            stringBytes[i] = strings.get(i).getBytes(UTF_8);
+            stringBytesSize += stringBytes[i].length;
+        }
+
+        final int stringsStart = HEADER_SIZE + seatCount * RECORD_SIZE;
+        final int bytesStart = stringsStart + stringCount * STRING_ENTRY_SIZE;
+        ByteBuffer buffer = ByteBuffer.allocate(bytesStart + stringBytesSize);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(seatCount);
+        buffer.putInt(stringCount);
+        for (int i = 0; i < seatCount; i++) {
+            buffer.putShort((short) table.getRow(i));
+            buffer.putShort((short) table.getCol(i));
+            buffer.put((byte) table.getState(i));
+            buffer.put((byte) table.getType(i));
+            for (int j = 0; j < SeatTable.LABEL_COUNT; j++) {
+                buffer.putInt(table.getLabelId(i, j));
+            }
+        }
+        int offset = bytesStart;
+        for (int i = 0; i < stringCount; i++) {
+            buffer.putInt(offset);
+            buffer.putInt(stringBytes[i].length);
+            offset += stringBytes[i].length;
+        }
+        for (int i = 0; i < stringCount; i++) {
+            buffer.put(stringBytes[i]);
+        }
+
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(buffer.array());
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * 把座位图的 JSON 转换为二进制文件，JSON 的格式见 {@link SeatMapParser}。
+     *
+     * @param json 座位图的 JSON，不会被关闭
+     * @param file 座位图文件
+     * @return 座位数据
+     * @throws IOException 读取或写入失败
+     */
+    public static SeatTable convert(Reader json, File file) throws IOException {
+        SeatTable table = SeatMapParser.parse(json);
+        write(table, file);
+        return table;
+    }
+}
@@ -0,0 +1,125 @@
+package com.kokozu.widget.seatview;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * 流式解析座位图的 JSON，边读边写入 {@link SeatTable}，不会生成 JSON 对象树或中间对象。支持的格式：
+ * <pre>
+ * {"seats": [{"graphRow": 1, "graphCol": 5, "seatState": 0, "seatType": 1, "isLoverL": true,
+ *             "seatRow": "1", "seatCol": "3", "seatNo": "1024_5_1_1_3", "seatPieceNo": "1"}, ...]}
+ * </pre>
+ * seatState 为 0 时可选，其它值视为已售；seatType 为 1 时为情侣座，isLoverL 区分左右。
+ * 也可以直接是座位的数组，未知的字段会被跳过。
+ */
+public final class SeatMapParser {
+
+    private SeatMapParser() {
+    }
+
+    /**
+     * 解析座位图，不会关闭 reader。
+     *
+     * @param reader 座位图的 JSON
+     * @return 座位数据
+     * @throws IOException 读取失败或格式错误
+     */
+    public static SeatTable parse(Reader reader) throws IOException {
+        SeatTable table = new SeatTable();
+        JsonReader json = new JsonReader(reader);
+        if (json.peek() == JsonToken.BEGIN_ARRAY) {
+            readSeats(json, table);
+        } else {
+            json.beginObject();
+            while (json.hasNext()) {
+                if ("seats".equals(json.nextName()) && json.peek() == JsonToken.BEGIN_ARRAY) {
+                    readSeats(json, table);
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endObject();
+        }
+        table.trimToSize();
+        return table;
+    }
+
+    private static void readSeats(JsonReader json, SeatTable table) throws IOException {
+        json.beginArray();
+        while (json.hasNext()) {
+            readSeat(json, table);
+        }
+        json.endArray();
+    }
+
+    private static void readSeat(JsonReader json, SeatTable table) throws IOException {
+        int row = 0, col = 0;
+        int seatState = 0, seatType = 0;
+        boolean isLoverLeft = false;
+        String seatRow = null, seatCol = null, seatNo = null, pieceNo = null;
+
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (json.peek() == JsonToken.NULL) {
+                json.skipValue();
+                continue;
+            }
+
+            switch (name) {
+                case "graphRow":
+                    row = json.nextInt();
+                    break;
+
+                case "graphCol":
+                    col = json.nextInt();
+                    break;
+
+                case "seatState":
+                    seatState = json.nextInt();
+                    break;
+
+                case "seatType":
+                    seatType = json.nextInt();
+                    break;
+
+                case "isLoverL":
+                    isLoverLeft = json.nextBoolean();
+                    break;
+
+                case "seatRow":
+                    seatRow = json.nextString();
+                    break;
+
+                case "seatCol":
+                    seatCol = json.nextString();
+                    break;
+
+                case "seatNo":
+                    seatNo = json.nextString();
+                    break;
+
+                case "seatPieceNo":
+                    pieceNo = json.nextString();
+                    break;
+
+                default:
+                    json.skipValue();
+                    break;
+            }
+        }
+        json.endObject();
+
+        int state = seatState == 0 ? SeatData.STATE_NORMAL : SeatData.STATE_SOLD;
+        int type;
+        if (seatType == 1) {
+            type = isLoverLeft ? SeatData.TYPE_LOVER_LEFT : SeatData.TYPE_LOVER_RIGHT;
+        } else {
+            type = SeatData.TYPE_NORMAL;
+        }
+        table.addSeat(row, col, state, type, seatRow, seatCol, seatNo, pieceNo);
+    }
+}
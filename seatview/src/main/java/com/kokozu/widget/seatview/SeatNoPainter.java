@@ -30,6 +30,8 @@ class SeatNoPainter {
      */
     private RectF mSeatNoRectF = new RectF();
 
+    private Paint.FontMetricsInt mFontMetrics = new Paint.FontMetricsInt();
+
     private int mSeatNoWidth;
     private int mSeatNoTopMargin;
     private int mSeatNoLeftMargin;
@@ -84,7 +86,8 @@ class SeatNoPainter {
         mSeatNoPaint.setColor(mSeatNoTextColor);
         float x = left + mSeatNoWidth / 2;
         float noHeight = height / maxRow;
-        Paint.FontMetricsInt fontMetrics = mSeatNoPaint.getFontMetricsInt();
+        Paint.FontMetricsInt fontMetrics = mFontMetrics;
+        mSeatNoPaint.getFontMetricsInt(fontMetrics);
         for (int i = 0; i < seatNo.length; i++) {
             float textStartY = mSeatNoRectF.top + mSeatNoTopMargin + noHeight * i;
             float textEndY = textStartY + noHeight;
@@ -0,0 +1,144 @@
+package com.kokozu.widget.seatview;
+
+import java.util.List;
+
+/**
+ * 解析每排一个字符串的座位图，例如 "AA__AAAA__LRLR"，结果写入 {@link SeatTable}，不会创建座位对象。
+ * <ul>
+ * <li>{@link #SEAT} 普通座位，{@link #NO_SEAT} 没有座位</li>
+ * <li>{@link #LOVER_LEFT}、{@link #LOVER_RIGHT} 情侣座的左右座位，必须相邻，不成对的视为普通座位</li>
+ * </ul>
+ * 已售状态用同样长度的字符串表示，{@link #SOLD} 为已售，情侣座中任意一个已售时两个座位都视为已售。
+ * 第 i 个字符串的第 j 个字符对应座位图中的第 i + 1 排、第 j + 1 列；
+ * 排号为有座位的排的序号，座号为座位在这一排中的序号，均从 1 开始。
+ */
+public final class SeatRowDecoder {
+
+    public static final char SEAT = 'A';
+    public static final char NO_SEAT = '_';
+    public static final char LOVER_LEFT = 'L';
+    public static final char LOVER_RIGHT = 'R';
+    public static final char SOLD = '1';
+
+    private SeatRowDecoder() {
+    }
+
+    /**
+     * 解析座位图。
+     *
+     * @param rows     每排座位的字符串
+     * @param soldRows 每排已售状态的字符串，可以为 null，比座位的字符串短时缺少的部分视为未售
+     * @return 座位数据
+     * @throws IllegalArgumentException 有无法识别的字符
+     */
+    public static SeatTable decode(List<String> rows, List<String> soldRows) {
+        final int rowCount = rows.size();
+        int seatCount = 0;
+        for (int i = 0; i < rowCount; i++) {
+            String row = rows.get(i);
+            for (int j = 0; j < row.length(); j++) {
+                if (row.charAt(j) != NO_SEAT) {
+                    seatCount++;
+                }
+            }
+        }
+
+        // 直接写入各列，不经过 SeatTable.addSeat 逐个查找字符串池
+        final int[] seatRows = new int[seatCount];
+        final int[] seatCols = new int[seatCount];
+        final byte[] states = new byte[seatCount];
+        final byte[] types = new byte[seatCount];
+        final int[] labels = new int[seatCount * SeatTable.LABEL_COUNT];
+        final SeatStrings strings = new SeatStrings();
+        // 排号、座号在各排中重复，只创建并加入字符串池一次
+        int[] numberIds = new int[0];
+        int seatRow = 0;
+        int index = 0;
+        for (int i = 0; i < rowCount; i++) {
+            String row = rows.get(i);
+            String soldRow = soldRows != null && i < soldRows.size() ? soldRows.get(i) : null;
+            int seatCol = 0;
+            for (int j = 0; j < row.length(); j++) {
+                final char c = row.charAt(j);
+                if (c == NO_SEAT) {
+                    continue;
+                }
+                if (seatCol == 0) {
+                    seatRow++;
+                }
+                seatCol++;
+                if (Math.max(seatRow, seatCol) >= numberIds.length) {
+                    numberIds = growNumbers(strings, numberIds, Math.max(seatRow, seatCol));
+                }
+
+                int type;
+                boolean isSold = isSold(soldRow, j);
+                switch (c) {
+                    case SEAT:
+                        type = SeatData.TYPE_NORMAL;
+                        break;
+
+                    case LOVER_LEFT:
+                        if (charAt(row, j + 1) == LOVER_RIGHT) {
+                            type = SeatData.TYPE_LOVER_LEFT;
+                            isSold |= isSold(soldRow, j + 1);
+                        } else {
+                            type = SeatData.TYPE_NORMAL;
+                        }
+                        break;
+
+                    case LOVER_RIGHT:
+                        if (charAt(row, j - 1) == LOVER_LEFT) {
+                            type = SeatData.TYPE_LOVER_RIGHT;
+                            isSold |= isSold(soldRow, j - 1);
+                        } else {
+                            type = SeatData.TYPE_NORMAL;
+                        }
+                        break;
+
+                    default:
+                        throw new IllegalArgumentException(
+                                "Unknown seat '" + c + "' at row " + (i + 1) + ", col " + (j + 1));
+                }
+
+                seatRows[index] = i + 1;
+                seatCols[index] = j + 1;
+                states[index] = (byte) (isSold ? SeatData.STATE_SOLD : SeatData.STATE_NORMAL);
+                types[index] = (byte) type;
+                final int base = index * SeatTable.LABEL_COUNT;
+                labels[base + SeatTable.LABEL_SEAT_ROW] = numberIds[seatRow];
+                labels[base + SeatTable.LABEL_SEAT_COL] = numberIds[seatCol];
+                labels[base + SeatTable.LABEL_SEAT_NO] = SeatStrings.NO_STRING;
+                labels[base + SeatTable.LABEL_PIECE_NO] = SeatStrings.NO_STRING;
+                index++;
+            }
+        }
+        strings.trimToSize();
+        return new SeatTable(seatCount, seatRows, seatCols, states, types, labels, strings);
+    }
+
+    /**
+     * 把 [numberIds.length, max] 的数字加入字符串池。
+     *
+     * @return 数字在字符串池中的 id
+     */
+    private static int[] growNumbers(SeatStrings strings, int[] numberIds, int max) {
+        int[] result = new int[Math.max(max + 1, numberIds.length * 2)];
+        System.arraycopy(numberIds, 0, result, 0, numberIds.length);
+        for (int i = numberIds.length; i < result.length; i++) {
+            result[i] = strings.add(String.valueOf(i));
+        }
+        return result;
+    }
+
+    private static boolean isSold(String soldRow, int index) {
+        return charAt(soldRow, index) == SOLD;
+    }
+
+    private static char charAt(String value, int index) {
+        if (value == null || index < 0 || index >= value.length()) {
+            return NO_SEAT;
+        }
+        return value.charAt(index);
+    }
+}
@@ -0,0 +1,102 @@
+package com.kokozu.widget.seatview;
+
+import java.util.Arrays;
+
+/**
+ * 推荐座位的评分模型，计算每个座位的代价，代价越小越好。默认的代价为：
+ * <pre>
+ * rowWeight * (row - 最佳排)² + colWeight * (col - 最佳列)² + 座位类型的偏移 + 排的偏移
+ * </pre>
+ * 可以继承并重写 {@link #getSeatCost(int, int, int, int, int)} 实现其它的评分方式。
+ * 同一个影厅的代价只在设置座位数据或模型时计算一次。
+ */
+public class SeatScoreModel {
+
+    private float mSweetSpotRow = 0.5f;
+    private float mSweetSpotCol = 0.5f;
+    private float mRowWeight = 1;
+    private float mColWeight = 1;
+
+    /**
+     * 座位类型的偏移，index：SeatData.TYPE_*
+     */
+    private final float[] mTypeBias = new float[3];
+
+    /**
+     * 排的偏移，index：排
+     */
+    private float[] mRowBias = new float[0];
+
+    /**
+     * 设置最佳观影位置在影厅中的相对位置。
+     *
+     * @param row 从第一排到最后一排的比例，0 到 1，默认为 0.5
+     * @param col 从第一列到最后一列的比例，0 到 1，默认为 0.5
+     */
+    public void setSweetSpot(float row, float col) {
+        mSweetSpotRow = row;
+        mSweetSpotCol = col;
+    }
+
+    /**
+     * 设置排、列方向上偏离最佳位置的权重。
+     *
+     * @param rowWeight 排的权重，默认为 1
+     * @param colWeight 列的权重，默认为 1
+     */
+    public void setWeights(float rowWeight, float colWeight) {
+        mRowWeight = rowWeight;
+        mColWeight = colWeight;
+    }
+
+    /**
+     * 设置座位类型的偏移，如让情侣座的代价更高。
+     *
+     * @param type 座位类型
+     * @param bias 偏移
+     */
+    public void setTypeBias(@SeatData.SeatType int type, float bias) {
+        if (type >= 0 && type < mTypeBias.length) {
+            mTypeBias[type] = bias;
+        }
+    }
+
+    /**
+     * 设置一排座位的偏移，如让高价排的代价更高。
+     *
+     * @param row  排
+     * @param bias 偏移
+     */
+    public void setRowBias(int row, float bias) {
+        if (row < 0) {
+            return;
+        }
+        if (row >= mRowBias.length) {
+            mRowBias = Arrays.copyOf(mRowBias, row + 1);
+        }
+        mRowBias[row] = bias;
+    }
+
+    /**
+     * 计算座位的代价。
+     *
+     * @param row    排
+     * @param col    列
+     * @param type   座位类型
+     * @param maxRow 影厅的最大排
+     * @param maxCol 影厅的最大列
+     * @return 代价，越小越好
+     */
+    public float getSeatCost(int row, int col, int type, int maxRow, int maxCol) {
+        float dy = row - (1 + mSweetSpotRow * (maxRow - 1));
+        float dx = col - (1 + mSweetSpotCol * (maxCol - 1));
+        float cost = mRowWeight * dy * dy + mColWeight * dx * dx;
+        if (type >= 0 && type < mTypeBias.length) {
+            cost += mTypeBias[type];
+        }
+        if (row < mRowBias.length) {
+            cost += mRowBias[row];
+        }
+        return cost;
+    }
+}
@@ -1,95 +1,351 @@
 package com.kokozu.widget.seatview;
 
-import android.util.SparseArray;
-
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
 /**
- * 判断座位是否可选的规则。
+ * 判断座位是否可选的规则。每排的已售（含无座位）、已选座位各用一组 long 位图记录，
+ * 座位状态变化时只重新检查该座位附近的连续已选座位，并缓存每排的检查结果。
  *
  * @author wuzhen
  * @since 2017-04-20
  */
 class SeatSelectRegular {
 
+    private static final long[] EMPTY_BITS = new long[0];
+    private static final byte[] EMPTY_VERDICTS = new byte[0];
+
+    /*
+     * 每排的检查结果
+     */
+    private static final byte VERDICT_UNKNOWN = 0;
+    private static final byte VERDICT_LEGAL = 1;
+    private static final byte VERDICT_ILLEGAL = 2;
+
+    private final SeatGrid mSeatGrid;
+
+    private int mMaxRow, mMaxCol;
+
+    /**
+     * 每排占用的 long 数量
+     */
+    private int mWordsPerRow;
+
+    /**
+     * 已售或无座位的位图，index：row * mWordsPerRow + (col >>> 6)
+     */
+    private long[] mBlockedBits = EMPTY_BITS;
+
+    /**
+     * 已选座位的位图，index 同 mBlockedBits
+     */
+    private long[] mSelectedBits = EMPTY_BITS;
+
+    private byte[] mRowVerdicts = EMPTY_VERDICTS;
+
+    /**
+     * @param grid 座位的状态从该网格读取
+     */
+    SeatSelectRegular(SeatGrid grid) {
+        this.mSeatGrid = grid;
+    }
+
+    /**
+     * 根据座位网格重建所有排的位图。
+     */
+    void rebuild() {
+        if (mSeatGrid.size() == 0) {
+            clear();
+            return;
+        }
+
+        mMaxRow = mSeatGrid.getMaxRow();
+        mMaxCol = mSeatGrid.getMaxCol();
+        mWordsPerRow = (mMaxCol >>> 6) + 1;
+
+        final int length = (mMaxRow + 1) * mWordsPerRow;
+        if (mBlockedBits.length != length) {
+            mBlockedBits = new long[length];
+            mSelectedBits = new long[length];
+        } else {
+            Arrays.fill(mBlockedBits, 0);
+            Arrays.fill(mSelectedBits, 0);
+        }
+        if (mRowVerdicts.length != mMaxRow + 1) {
+            mRowVerdicts = new byte[mMaxRow + 1];
+        } else {
+            Arrays.fill(mRowVerdicts, VERDICT_UNKNOWN);
+        }
+
+        for (int row = 0; row <= mMaxRow; row++) {
+            for (int col = 0; col <= mMaxCol; col++) {
+                setBits(row, col, mSeatGrid.getState(row, col));
+            }
+        }
+    }
+
+    /**
+     * 座位的状态发生了变化，更新位图。该排原本合法时只检查该座位前后两个座位以内的连续已选座位，
+     * 否则在下次判断时重新检查整排。
+     *
+     * @param row 排
+     * @param col 列
+     */
+    void onSeatChanged(int row, int col) {
+        if (row < 0 || row > mMaxRow || col < 0 || col > mMaxCol) {
+            return;
+        }
+
+        final int index = row * mWordsPerRow + (col >>> 6);
+        final long mask = 1L << col;
+        final long blocked = mBlockedBits[index] & mask;
+        final long selected = mSelectedBits[index] & mask;
+        setBits(row, col, mSeatGrid.getState(row, col));
+        if ((mBlockedBits[index] & mask) == blocked && (mSelectedBits[index] & mask) == selected) {
+            return;
+        }
+
+        if (mRowVerdicts[row] == VERDICT_LEGAL) {
+            // 其它连续已选座位及其两侧的座位都没有变化，仍然合法
+            mRowVerdicts[row] = isRangeLegal(row, col - 2, col + 2)
+                    ? VERDICT_LEGAL
+                    : VERDICT_ILLEGAL;
+        } else {
+            mRowVerdicts[row] = VERDICT_UNKNOWN;
+        }
+    }
+
     /**
-     * 判断选择的座位是否合法。
+     * 判断选择的座位是否合法，只检查已选座位所在的排。
      *
      * @param selectedSeat 已选中的座位
      * @return 是否合法
      */
-    static boolean isSelectedSeatLegal(
-            List<SeatData> selectedSeat, Map<String, SeatData> seats, int maxCol) {
-        if (seats == null || seats.size() == 0) {
-            return true;
+    boolean isSelectedSeatLegal(List<SeatData> selectedSeat) {
+        final int size = Utils.size(selectedSeat);
+        for (int i = 0; i < size; i++) {
+            if (!isRowLegal(selectedSeat.get(i).point.x)) {
+                return false;
+            }
         }
-        if (Utils.isEmpty(selectedSeat)) {
+        return true;
+    }
+
+    /**
+     * 判断一排的已选座位是否合法。
+     *
+     * @param row 排
+     * @return 是否合法
+     */
+    boolean isRowLegal(int row) {
+        if (row < 0 || row > mMaxRow || mMaxCol <= 0) {
             return true;
         }
-        if (maxCol <= 0) {
+
+        if (mRowVerdicts[row] == VERDICT_UNKNOWN) {
+            mRowVerdicts[row] = isRangeLegal(row, 0, mMaxCol - 1)
+                    ? VERDICT_LEGAL
+                    : VERDICT_ILLEGAL;
+        }
+        return mRowVerdicts[row] == VERDICT_LEGAL;
+    }
+
+    /**
+     * 判断一排中只选择从 col 开始的 count 个座位时是否合法，用于查找推荐座位。
+     *
+     * @param freeBits 未售座位的位图，未置位的座位视为已售
+     * @param row      排
+     * @param col      第一个座位的列
+     * @param count    座位的数量
+     * @return 是否合法
+     */
+    static boolean isBlockLegal(SeatBits freeBits, int row, int col, int count) {
+        final int maxCol = freeBits.getMaxCol();
+        // 连续已选座位只在 [0, maxCol - 1] 内查找
+        if (count <= 0 || col < 0 || col >= maxCol) {
             return true;
         }
 
-        SparseArray<int[]> rowMap = new SparseArray<>();
-        for (SeatData seat : selectedSeat) {
-            int row = seat.point.x;
-            if (rowMap.get(row) == null) {
-                int rows[] = new int[maxCol];
-                for (int i = 0; i < maxCol; i++) {
-                    rows[i] = getSeatStateByKey(row, i, seats);
-                }
-                rowMap.put(row, rows);
+        final int end = col + count;
+        final int i = Math.min(end, maxCol);
+        return isRunLegal(
+                getBlockSeatState(freeBits, row, col - 1, col, end),
+                getBlockSeatState(freeBits, row, col - 2, col, end),
+                getBlockSeatState(freeBits, row, i, col, end),
+                getBlockSeatState(freeBits, row, i + 1, col, end));
+    }
+
+    /**
+     * 判断一排中选择 selectedBits 中的座位时是否合法，用于同时推荐多组座位。
+     *
+     * @param freeBits     未售座位的位图，未置位的座位视为已售
+     * @param selectedBits 选择的座位
+     * @param row          排
+     * @return 是否合法
+     */
+    static boolean isRowLegal(SeatBits freeBits, SeatBits selectedBits, int row) {
+        final int maxCol = freeBits.getMaxCol();
+        for (int s = 0; s < maxCol; s++) {
+            if (!selectedBits.get(row, s)) {
+                continue;
             }
-        }
-        for (int i = 0; i < rowMap.size(); i++) {
-            int row = rowMap.keyAt(i);
-            if (!checkSeatRowAvailable(row, maxCol, seats)) {
+
+            int i = s + 1;
+            while (i < maxCol && selectedBits.get(row, i)) {
+                i++;
+            }
+            boolean legal = isRunLegal(
+                    getSeatState(freeBits, selectedBits, row, s - 1),
+                    getSeatState(freeBits, selectedBits, row, s - 2),
+                    getSeatState(freeBits, selectedBits, row, i),
+                    getSeatState(freeBits, selectedBits, row, i + 1));
+            if (!legal) {
                 return false;
             }
+            s = i;
         }
         return true;
     }
 
-    private static boolean checkSeatRowAvailable(int row, int maxCol, Map<String, SeatData> seats) {
-        int l1, l2, r1, r2;
-        for (int s = 0; s < maxCol; s++) {
-            if (getSeatStateByKey(row, s, seats) != SeatData.STATE_SELECTED) {
-                continue;
+    void clear() {
+        mMaxRow = mMaxCol = 0;
+        mWordsPerRow = 0;
+        mBlockedBits = mSelectedBits = EMPTY_BITS;
+        mRowVerdicts = EMPTY_VERDICTS;
+    }
+
+    /**
+     * @param state 座位的状态，没有座位时为 SeatGrid.NO_SEAT
+     */
+    private void setBits(int row, int col, int state) {
+        final int index = row * mWordsPerRow + (col >>> 6);
+        final long mask = 1L << col;
+        mBlockedBits[index] &= ~mask;
+        mSelectedBits[index] &= ~mask;
+        if (state == SeatGrid.NO_SEAT || state == SeatData.STATE_SOLD) {
+            mBlockedBits[index] |= mask;
+        } else if (state == SeatData.STATE_SELECTED) {
+            mSelectedBits[index] |= mask;
+        }
+    }
+
+    /**
+     * 检查与 [from, to] 相交的所有连续已选座位。连续已选座位只在 [0, mMaxCol - 1] 内查找。
+     */
+    private boolean isRangeLegal(int row, int from, int to) {
+        from = Math.max(0, from);
+        to = Math.min(mMaxCol - 1, to);
+
+        int s = nextSelected(row, from, to);
+        while (s >= 0) {
+            while (s > 0 && isSelected(row, s - 1)) {
+                s--;
             }
+            int i = s + 1;
+            while (i < mMaxCol && isSelected(row, i)) {
+                i++;
+            }
+            if (!isRunLegal(row, s, i)) {
+                return false;
+            }
+            s = nextSelected(row, i + 1, to);
+        }
+        return true;
+    }
 
-            int i;
-            for (i = s + 1; i < maxCol; i++) {
-                if (getSeatStateByKey(row, i, seats) != SeatData.STATE_SELECTED) {
-                    break;
-                }
+    /**
+     * 判断 [s, i) 的连续已选座位是否合法。
+     */
+    private boolean isRunLegal(int row, int s, int i) {
+        return isRunLegal(
+                getSeatState(row, s - 1),
+                getSeatState(row, s - 2),
+                getSeatState(row, i),
+                getSeatState(row, i + 1));
+    }
+
+    /**
+     * 根据连续已选座位左右两侧各两个座位的状态判断是否合法。
+     */
+    private static boolean isRunLegal(int l1, int l2, int r1, int r2) {
+        // 同一排的座位 1 左或右挨着已选座位或者边界，ok
+        // ！,左或右不可能挨着自选,左或右加1如果挨着自选，则中间隔的已选或者没座,2左右挨着空座，左右隔一个不挨着自选，已选，边界
+        if (l1 == SeatData.STATE_SOLD || r1 == SeatData.STATE_SOLD) {
+            if (l2 == SeatData.STATE_SELECTED && l1 != SeatData.STATE_SOLD) {
+                return false;
             }
-            l1 = getSeatStateByKey(row, s - 1, seats);
-            l2 = getSeatStateByKey(row, s - 2, seats);
-            r1 = getSeatStateByKey(row, i, seats);
-            r2 = getSeatStateByKey(row, i + 1, seats);
-
-            // 同一排的座位 1 左或右挨着已选座位或者边界，ok
-            // ！,左或右不可能挨着自选,左或右加1如果挨着自选，则中间隔的已选或者没座,2左右挨着空座，左右隔一个不挨着自选，已选，边界
-            if (l1 == SeatData.STATE_SOLD || r1 == SeatData.STATE_SOLD) {
-                if (l2 == SeatData.STATE_SELECTED && l1 != SeatData.STATE_SOLD) {
-                    return false;
-                }
-                if (r2 == SeatData.STATE_SELECTED && r1 != SeatData.STATE_SOLD) {
-                    return false;
-                }
-            } else {
-                if (l2 != SeatData.STATE_NORMAL || r2 != SeatData.STATE_NORMAL) {
-                    return false;
-                }
+            if (r2 == SeatData.STATE_SELECTED && r1 != SeatData.STATE_SOLD) {
+                return false;
+            }
+        } else {
+            if (l2 != SeatData.STATE_NORMAL || r2 != SeatData.STATE_NORMAL) {
+                return false;
             }
-            s = i;
         }
         return true;
     }
 
-    private static int getSeatStateByKey(int row, int col, Map<String, SeatData> seats) {
-        SeatData seat = seats.get(row + "-" + col);
-        return seat == null ? SeatData.STATE_SOLD : seat.state;
+    /**
+     * 获取座位的状态，无座位或超出范围时视为已售。
+     */
+    private int getSeatState(int row, int col) {
+        if (col < 0 || col > mMaxCol) {
+            return SeatData.STATE_SOLD;
+        }
+        final int index = row * mWordsPerRow + (col >>> 6);
+        final long mask = 1L << col;
+        if ((mBlockedBits[index] & mask) != 0) {
+            return SeatData.STATE_SOLD;
+        }
+        return (mSelectedBits[index] & mask) != 0
+                ? SeatData.STATE_SELECTED
+                : SeatData.STATE_NORMAL;
+    }
+
+    private static int getBlockSeatState(
+            SeatBits freeBits, int row, int col, int blockStart, int blockEnd) {
+        if (!freeBits.get(row, col)) {
+            return SeatData.STATE_SOLD;
+        }
+        return col >= blockStart && col < blockEnd
+                ? SeatData.STATE_SELECTED
+                : SeatData.STATE_NORMAL;
+    }
+
+    private static int getSeatState(SeatBits freeBits, SeatBits selectedBits, int row, int col) {
+        if (!freeBits.get(row, col)) {
+            return SeatData.STATE_SOLD;
+        }
+        return selectedBits.get(row, col) ? SeatData.STATE_SELECTED : SeatData.STATE_NORMAL;
+    }
+
+    private boolean isSelected(int row, int col) {
+        return (mSelectedBits[row * mWordsPerRow + (col >>> 6)] & (1L << col)) != 0;
+    }
+
+    /**
+     * 查找 [from, to] 内第一个已选的座位。
+     *
+     * @return 列，没有时返回 -1
+     */
+    private int nextSelected(int row, int from, int to) {
+        if (from > to) {
+            return -1;
+        }
+
+        final int base = row * mWordsPerRow;
+        final int last = to >>> 6;
+        int w = from >>> 6;
+        long word = mSelectedBits[base + w] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                int col = (w << 6) + Long.numberOfTrailingZeros(word);
+                return col <= to ? col : -1;
+            }
+            if (++w > last) {
+                return -1;
+            }
+            word = mSelectedBits[base + w];
+        }
     }
 }
@@ -0,0 +1,170 @@
+package com.kokozu.widget.seatview;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 影厅已售状态的紧凑编码。座位按 row * (maxCol + 1) + col 编号，已售状态看作一个位图，
+ * 从未售开始交替记录连续未售、已售座位的长度，所有整数都使用 varint：
+ * <pre>
+ * version | maxRow | maxCol | runCount | run[0] | run[1] | ...
+ * </pre>
+ * 通常一个影厅的已售快照只有几十到几百字节。
+ */
+public final class SeatSoldCodec {
+
+    /**
+     * 编码的版本
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * 最大排、最大列的上限，与座位网格中排、列各占 16 位相同
+     */
+    static final int MAX_ROW_COL = 0xFFFF;
+
+    private SeatSoldCodec() {
+    }
+
+    /**
+     * 编码已售的座位，用于服务端或本地模拟的服务端。
+     *
+     * @param soldSeats 已售的座位
+     * @param maxRow    影厅的最大排
+     * @param maxCol    影厅的最大列
+     * @return 编码后的数据
+     * @throws IllegalArgumentException maxRow、maxCol 小于 0 或超出 {@link #MAX_ROW_COL}
+     */
+    public static byte[] encode(List<SeatData> soldSeats, int maxRow, int maxCol) {
+        checkSize(maxRow, maxCol);
+
+        final int size = Utils.size(soldSeats);
+        int[] indexes = new int[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            SeatData seat = soldSeats.get(i);
+            int row = seat.point.x;
+            int col = seat.point.y;
+            if (row >= 0 && row <= maxRow && col >= 0 && col <= maxCol) {
+                indexes[count++] = row * (maxCol + 1) + col;
+            }
+        }
+        Arrays.sort(indexes, 0, count);
+
+        // 交替的未售、已售长度，最多 2 * count 个
+        int[] runs = new int[count * 2];
+        int runCount = 0;
+        int position = 0;
+        for (int i = 0; i < count; ) {
+            int start = indexes[i];
+            int end = start + 1;
+            i++;
+            while (i < count && indexes[i] <= end) {
+                end = Math.max(end, indexes[i] + 1);
+                i++;
+            }
+            runs[runCount++] = start - position;
+            runs[runCount++] = end - start;
+            position = end;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + runCount * 2);
+        writeVarInt(out, VERSION);
+        writeVarInt(out, maxRow);
+        writeVarInt(out, maxCol);
+        writeVarInt(out, runCount);
+        for (int i = 0; i < runCount; i++) {
+            writeVarInt(out, runs[i]);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 解码为已售座位的位图，不创建座位对象。分配位图之前检查影厅的大小与 maxRow、maxCol 相同。
+     *
+     * @param data   编码后的数据
+     * @param maxRow 当前影厅的最大排
+     * @param maxCol 当前影厅的最大列
+     * @return 已售座位的位图
+     * @throws IllegalArgumentException 数据的版本不支持、影厅的大小不符或数据不完整
+     */
+    static SeatBits decode(byte[] data, int maxRow, int maxCol) {
+        int[] offset = new int[1];
+        int version = readVarInt(data, offset);
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported version: " + version);
+        }
+        int dataMaxRow = readVarInt(data, offset);
+        int dataMaxCol = readVarInt(data, offset);
+        checkSize(dataMaxRow, dataMaxCol);
+        if (dataMaxRow != maxRow || dataMaxCol != maxCol) {
+            throw new IllegalArgumentException(
+                    "Snapshot size " + dataMaxRow + "x" + dataMaxCol
+                            + " does not match the hall " + maxRow + "x" + maxCol);
+        }
+        int runCount = readVarInt(data, offset);
+
+        SeatBits soldBits = new SeatBits();
+        soldBits.reset(maxRow, maxCol);
+        final int width = maxCol + 1;
+        final long cellCount = (long) (maxRow + 1) * width;
+        long position = 0;
+        for (int i = 0; i < runCount; i++) {
+            int length = readVarInt(data, offset);
+            if (position + length > cellCount) {
+                throw new IllegalArgumentException("Run exceeds the hall size");
+            }
+            if ((i & 1) == 1) {
+                for (int index = (int) position; index < position + length; index++) {
+                    soldBits.set(index / width, index % width, true);
+                }
+            }
+            position += length;
+        }
+        return soldBits;
+    }
+
+    /**
+     * 排、列不超过 {@link #MAX_ROW_COL}，座位的序号 row * (maxCol + 1) + col 不超过 int 的范围。
+     */
+    private static void checkSize(int maxRow, int maxCol) {
+        if (maxRow < 0 || maxCol < 0) {
+            throw new IllegalArgumentException("maxRow and maxCol must not be negative");
+        }
+        if (maxRow > MAX_ROW_COL
+                || maxCol > MAX_ROW_COL
+                || (long) (maxRow + 1) * (maxCol + 1) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Hall too large: " + maxRow + "x" + maxCol);
+        }
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * @param offset 读取的位置，读取后更新
+     */
+    private static int readVarInt(byte[] data, int[] offset) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (offset[0] >= data.length) {
+                throw new IllegalArgumentException("Truncated data");
+            }
+            byte b = data[offset[0]++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) {
+                    throw new IllegalArgumentException("Negative value");
+                }
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+}
@@ -0,0 +1,221 @@
+package com.kokozu.widget.seatview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.AnyThread;
+import android.support.annotation.MainThread;
+import android.view.Choreographer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 后台同步座位的已售状态。任意线程提交的已售、释放的座位先放入无锁队列，
+ * 每一帧最多在主线程合并应用一次，同一个座位只保留最后一次的状态。
+ *
+ * <pre>
+ * SeatSoldSync sync = new SeatSoldSync(seatView);
+ * // 网络回调中
+ * sync.offerSoldSeats(soldSeats, releasedSeats);
+ * // 页面销毁时
+ * sync.release();
+ * </pre>
+ */
+public class SeatSoldSync {
+
+    /**
+     * 应用合并后的变化，通常是 SeatView
+     */
+    interface Target {
+
+        /**
+         * 修改一个座位的已售状态。
+         *
+         * @return 是否有已选的座位被售出
+         */
+        boolean applySoldChange(int row, int col, boolean sold);
+
+        /**
+         * 一帧的变化都已应用。
+         *
+         * @param selectedSeatSold 是否有已选的座位被售出
+         */
+        void onSoldChangesApplied(boolean selectedSeatSold);
+    }
+
+    private final Target mTarget;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * 待应用的变化，(seatKey &lt;&lt; 1) | sold
+     */
+    private final ConcurrentLinkedQueue<Long> mPendingChanges = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 是否已请求在下一帧应用变化
+     */
+    private final AtomicBoolean isFrameScheduled = new AtomicBoolean();
+
+    /*
+     * 一帧内每个座位最后的状态，按 seatKey 从小到大排列，只在主线程使用。
+     * 数组只在一帧的座位数超过容量时扩大，之后重复使用
+     */
+    private int[] mMergedKeys = new int[16];
+    private boolean[] mMergedSold = new boolean[16];
+    private int mMergedSize;
+
+    private volatile boolean isReleased;
+
+    private final Choreographer.FrameCallback mFrameCallback =
+            new Choreographer.FrameCallback() {
+
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    applyPendingChanges();
+                }
+            };
+
+    private final Runnable mScheduleFrame =
+            new Runnable() {
+
+                @Override
+                public void run() {
+                    if (!isReleased) {
+                        Choreographer.getInstance().postFrameCallback(mFrameCallback);
+                    }
+                }
+            };
+
+    public SeatSoldSync(final SeatView seatView) {
+        this(
+                new Target() {
+
+                    @Override
+                    public boolean applySoldChange(int row, int col, boolean sold) {
+                        return seatView.applySoldChange(row, col, sold);
+                    }
+
+                    @Override
+                    public void onSoldChangesApplied(boolean selectedSeatSold) {
+                        seatView.onSoldChangesApplied(selectedSeatSold);
+                    }
+                });
+    }
+
+    SeatSoldSync(Target target) {
+        this.mTarget = target;
+    }
+
+    /**
+     * 提交一个座位的已售状态，可以在任意线程调用。
+     *
+     * @param row  排
+     * @param col  列
+     * @param sold 是否已售
+     */
+    @AnyThread
+    public void offerSeatSold(int row, int col, boolean sold) {
+        if (isReleased) {
+            return;
+        }
+        mPendingChanges.offer(((long) SeatGrid.packKey(row, col) << 1) | (sold ? 1 : 0));
+        scheduleFrame();
+    }
+
+    /**
+     * 提交一批座位的已售状态，可以在任意线程调用。
+     *
+     * @param soldSeats     新售出的座位，可以为 null
+     * @param releasedSeats 重新可选的座位，可以为 null
+     */
+    @AnyThread
+    public void offerSoldSeats(List<SeatData> soldSeats, List<SeatData> releasedSeats) {
+        if (isReleased) {
+            return;
+        }
+        final int soldSize = Utils.size(soldSeats);
+        for (int i = 0; i < soldSize; i++) {
+            SeatData seat = soldSeats.get(i);
+            mPendingChanges.offer(((long) seat.seatKey() << 1) | 1);
+        }
+        final int releasedSize = Utils.size(releasedSeats);
+        for (int i = 0; i < releasedSize; i++) {
+            SeatData seat = releasedSeats.get(i);
+            mPendingChanges.offer((long) seat.seatKey() << 1);
+        }
+        if (soldSize + releasedSize > 0) {
+            scheduleFrame();
+        }
+    }
+
+    /**
+     * 停止同步，丢弃还未应用的变化。
+     */
+    @MainThread
+    public void release() {
+        isReleased = true;
+        mMainHandler.removeCallbacks(mScheduleFrame);
+        Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+        mPendingChanges.clear();
+        mMergedSize = 0;
+    }
+
+    private void scheduleFrame() {
+        if (isFrameScheduled.compareAndSet(false, true)) {
+            // Choreographer 只能在主线程获取
+            mMainHandler.post(mScheduleFrame);
+        }
+    }
+
+    /**
+     * 合并队列中的变化并应用到座位图，只有已选的座位被售出时才回调。
+     */
+    @MainThread
+    void applyPendingChanges() {
+        // 先清除标记，应用期间提交的变化会在下一帧应用
+        isFrameScheduled.set(false);
+
+        Long change;
+        while ((change = mPendingChanges.poll()) != null) {
+            merge((int) (change >>> 1), (change & 1) != 0);
+        }
+
+        final int size = mMergedSize;
+        if (size == 0) {
+            return;
+        }
+        boolean selectedSeatSold = false;
+        for (int i = 0; i < size; i++) {
+            int key = mMergedKeys[i];
+            selectedSeatSold |=
+                    mTarget.applySoldChange(
+                            SeatGrid.keyRow(key), SeatGrid.keyCol(key), mMergedSold[i]);
+        }
+        mMergedSize = 0;
+        mTarget.onSoldChangesApplied(selectedSeatSold);
+    }
+
+    /**
+     * 记录座位最后的状态，已有该座位时覆盖之前的状态。
+     */
+    private void merge(int key, boolean sold) {
+        int index = Arrays.binarySearch(mMergedKeys, 0, mMergedSize, key);
+        if (index >= 0) {
+            mMergedSold[index] = sold;
+            return;
+        }
+
+        index = ~index;
+        if (mMergedSize == mMergedKeys.length) {
+            mMergedKeys = Arrays.copyOf(mMergedKeys, mMergedSize * 2);
+            mMergedSold = Arrays.copyOf(mMergedSold, mMergedSize * 2);
+        }
+        System.arraycopy(mMergedKeys, index, mMergedKeys, index + 1, mMergedSize - index);
+        System.arraycopy(mMergedSold, index, mMergedSold, index + 1, mMergedSize - index);
+        mMergedKeys[index] = key;
+        mMergedSold[index] = sold;
+        mMergedSize++;
+    }
+}
@@ -0,0 +1,137 @@
+package com.kokozu.widget.seatview;
+
+import android.graphics.Point;
+
+import java.util.ArrayList;
+
+/**
+ * 座位数据的适配器，按索引提供座位的排、列、状态、类型和文字。{@link SeatView} 直接通过适配器读取，
+ * 不需要把应用自己的座位对象转换为 {@link SeatData}，座位对象只在需要返回时才创建。
+ * <p>
+ * 数据发生变化时在主线程中调用 notify 方法，只有变化的座位会被刷新；座位的数量或位置发生变化时
+ * 调用 {@link #notifyDataSetChanged()}，会清空已选的座位。
+ */
+public abstract class SeatSource {
+
+    private final ArrayList<Observer> mObservers = new ArrayList<>(1);
+
+    /**
+     * @return 座位的数量
+     */
+    public abstract int getSeatCount();
+
+    /**
+     * @return 座位图中的排
+     */
+    public abstract int getRow(int index);
+
+    /**
+     * @return 座位图中的列
+     */
+    public abstract int getCol(int index);
+
+    /**
+     * @return {@link SeatData#STATE_NORMAL} 或 {@link SeatData#STATE_SOLD}
+     */
+    @SeatData.SeatState
+    public abstract int getState(int index);
+
+    @SeatData.SeatType
+    public abstract int getType(int index);
+
+    /**
+     * @return 排号
+     */
+    public abstract String getSeatRow(int index);
+
+    /**
+     * @return 座号
+     */
+    public abstract String getSeatCol(int index);
+
+    /**
+     * @return 座位编号
+     */
+    public abstract String getSeatNo(int index);
+
+    /**
+     * @return 区号
+     */
+    public abstract String getPieceNo(int index);
+
+    /**
+     * 所有座位都发生了变化，重建座位图。
+     */
+    public final void notifyDataSetChanged() {
+        for (int i = mObservers.size() - 1; i >= 0; i--) {
+            mObservers.get(i).onChanged();
+        }
+    }
+
+    /**
+     * 座位的状态、类型或文字发生了变化，位置不变。
+     *
+     * @param index 座位的索引
+     */
+    public final void notifyItemChanged(int index) {
+        notifyItemRangeChanged(index, 1);
+    }
+
+    /**
+     * 一段连续座位的状态、类型或文字发生了变化，位置不变。
+     *
+     * @param start 第一个座位的索引
+     * @param count 座位的数量
+     */
+    public final void notifyItemRangeChanged(int start, int count) {
+        for (int i = mObservers.size() - 1; i >= 0; i--) {
+            mObservers.get(i).onItemRangeChanged(start, count);
+        }
+    }
+
+    void registerObserver(Observer observer) {
+        if (!mObservers.contains(observer)) {
+            mObservers.add(observer);
+        }
+    }
+
+    void unregisterObserver(Observer observer) {
+        mObservers.remove(observer);
+    }
+
+    /**
+     * 创建座位对象。
+     *
+     * @param index 座位的索引
+     * @param state 座位当前的状态
+     * @return 座位
+     */
+    SeatData newSeatData(int index, int state) {
+        SeatData seat = new SeatData();
+        seat.point = new Point(getRow(index), getCol(index));
+        seat.state = state;
+        seat.type = getType(index);
+        updateSeatData(index, seat);
+        return seat;
+    }
+
+    /**
+     * 把座位的文字更新到已创建的座位对象。
+     */
+    void updateSeatData(int index, SeatData seat) {
+        seat.seatRow = getSeatRow(index);
+        seat.seatCol = getSeatCol(index);
+        seat.seatNo = getSeatNo(index);
+        seat.pieceNo = getPieceNo(index);
+    }
+
+    /**
+     * 座位数据变化的监听。
+     */
+    abstract static class Observer {
+
+        abstract void onChanged();
+
+        abstract void onItemRangeChanged(int start, int count);
+    }
+}
@@ -0,0 +1,148 @@
+package com.kokozu.widget.seatview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+
+/**
+ * 座位图片的预渲染图集。每个缩放档位把所有状态、类型的座位图片渲染到同一张 Bitmap 上，
+ * 绘制时只需按源区域贴图，不再对每个座位调用 {@link Drawable#draw(Canvas)}。
+ */
+class SeatSpriteAtlas {
+
+    static final int SPRITE_NORMAL = 0;
+    static final int SPRITE_SOLD = 1;
+    static final int SPRITE_SELECTED = 2;
+    static final int SPRITE_LOVER_NORMAL_L = 3;
+    static final int SPRITE_LOVER_NORMAL_R = 4;
+    static final int SPRITE_LOVER_SOLD_L = 5;
+    static final int SPRITE_LOVER_SOLD_R = 6;
+    static final int SPRITE_LOVER_SELECTED_L = 7;
+    static final int SPRITE_LOVER_SELECTED_R = 8;
+
+    private static final int SPRITE_COUNT = 9;
+
+    /**
+     * 相邻两个缩放档位的比例
+     */
+    private static final float BUCKET_STEP = 1.25f;
+
+    /**
+     * 图片之间的间隔，避免缩放过滤时取到相邻图片的像素
+     */
+    private static final int SPRITE_SPACING = 2;
+
+    private final Drawable[] mDrawables;
+    private final Rect[] mSourceRects = new Rect[SPRITE_COUNT];
+    private final Rect mDestRect = new Rect();
+    private final Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+
+    private Bitmap mBitmap;
+    private int mBucket;
+    private float mLatestScale = -1;
+    private boolean isDirty = true;
+
+    /**
+     * @param drawables 按 SPRITE_* 顺序排列的座位图片，可以为 null
+     */
+    SeatSpriteAtlas(Drawable[] drawables) {
+        this.mDrawables = drawables;
+        for (int i = 0; i < SPRITE_COUNT; i++) {
+            mSourceRects[i] = new Rect();
+        }
+    }
+
+    /**
+     * 座位图片发生变化，下次绘制前重建图集。
+     */
+    void invalidate() {
+        isDirty = true;
+    }
+
+    /**
+     * 判断是否包含该图片。
+     *
+     * @param drawable 图片
+     * @return 是否包含
+     */
+    boolean contains(Drawable drawable) {
+        for (Drawable d : mDrawables) {
+            if (d != null && d == drawable) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 准备当前缩放比例下的图集，只有跨越缩放档位或图片变化时才会重建。
+     *
+     * @param seatWidth  缩放比例为 1 时座位的宽度
+     * @param seatHeight 缩放比例为 1 时座位的高度
+     * @param scale      当前的缩放比例
+     * @return 图集是否可用
+     */
+    boolean prepare(int seatWidth, int seatHeight, float scale) {
+        if (seatWidth <= 0 || seatHeight <= 0 || scale <= 0) {
+            return false;
+        }
+
+        int bucket = mBucket;
+        if (scale != mLatestScale) {
+            bucket = (int) Math.ceil(Math.log(scale) / Math.log(BUCKET_STEP));
+            mLatestScale = scale;
+        }
+        if (isDirty || mBitmap == null || bucket != mBucket) {
+            mBucket = bucket;
+            rebuild(seatWidth, seatHeight, (float) Math.pow(BUCKET_STEP, bucket));
+        }
+        return mBitmap != null;
+    }
+
+    void draw(Canvas canvas, int sprite, int left, int top, int right, int bottom) {
+        if (mDrawables[sprite] == null) {
+            return;
+        }
+        mDestRect.set(left, top, right, bottom);
+        canvas.drawBitmap(mBitmap, mSourceRects[sprite], mDestRect, mPaint);
+    }
+
+    /**
+     * 释放图集占用的内存，下次绘制时重建。
+     */
+    void release() {
+        mBitmap = null;
+        isDirty = true;
+    }
+
+    private void rebuild(int seatWidth, int seatHeight, float rasterScale) {
+        // 按档位的上限渲染，绘制时只会缩小
+        int spriteWidth = Math.max(1, (int) Math.ceil(seatWidth * rasterScale));
+        int spriteHeight = Math.max(1, (int) Math.ceil(seatHeight * rasterScale));
+        int width = (spriteWidth + SPRITE_SPACING) * SPRITE_COUNT;
+
+        Bitmap bitmap;
+        try {
+            bitmap = Bitmap.createBitmap(width, spriteHeight, Bitmap.Config.ARGB_8888);
+        } catch (OutOfMemoryError e) {
+            mBitmap = null;
+            return;
+        }
+
+        Canvas canvas = new Canvas(bitmap);
+        for (int i = 0; i < SPRITE_COUNT; i++) {
+            int left = (spriteWidth + SPRITE_SPACING) * i;
+            mSourceRects[i].set(left, 0, left + spriteWidth, spriteHeight);
+
+            Drawable drawable = mDrawables[i];
+            if (drawable != null) {
+                drawable.setBounds(mSourceRects[i]);
+                drawable.draw(canvas);
+            }
+        }
+        mBitmap = bitmap;
+        isDirty = false;
+    }
+}
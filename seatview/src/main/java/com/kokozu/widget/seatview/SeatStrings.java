@@ -0,0 +1,114 @@
+package com.kokozu.widget.seatview;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * 座位文字的字符串池，相同的文字只保存一份，座位中用 id 引用。
+ * 从二进制座位图加载时，文字在第一次获取时才从文件中解码。
+ */
+class SeatStrings {
+
+    static final int NO_STRING = -1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private String[] mStrings;
+    private int mSize;
+
+    /**
+     * 文字到 id 的索引，只在添加文字时使用
+     */
+    private HashMap<String, Integer> mIds;
+
+    /**
+     * 二进制座位图中每个文字的位置，文字为 [offset, offset + length) 的 UTF-8 字节
+     */
+    private ByteBuffer mBuffer;
+    private int[] mOffsets;
+    private int[] mLengths;
+
+    SeatStrings() {
+        mStrings = new String[16];
+        mIds = new HashMap<>();
+    }
+
+    /**
+     * 从二进制座位图的字符串表加载，不解码文字。
+     */
+    SeatStrings(ByteBuffer buffer, int[] offsets, int[] lengths) {
+        mBuffer = buffer;
+        mOffsets = offsets;
+        mLengths = lengths;
+        mSize = offsets.length;
+        mStrings = new String[mSize];
+    }
+
+    /**
+     * 添加文字，已有相同的文字时返回已有的 id。
+     *
+     * @return id，value 为 null 时返回 NO_STRING
+     */
+    int add(String value) {
+        if (value == null) {
+            return NO_STRING;
+        }
+        if (mIds == null) {
+            rebuildIds();
+        }
+
+        Integer id = mIds.get(value);
+        if (id != null) {
+            return id;
+        }
+        if (mSize == mStrings.length) {
+            mStrings = Arrays.copyOf(mStrings, Math.max(16, mSize * 2));
+        }
+        mStrings[mSize] = value;
+        mIds.put(value, mSize);
+        return mSize++;
+    }
+
+    String get(int id) {
+        if (id == NO_STRING) {
+            return null;
+        }
+
+        String value = mStrings[id];
+        if (value == null && mBuffer != null) {
+            byte[] bytes = new byte[mLengths[id]];
+            ByteBuffer buffer = mBuffer.duplicate();
+            buffer.position(mOffsets[id]);
+            buffer.get(bytes);
+            value = new String(bytes, UTF_8);
+            mStrings[id] = value;
+        }
+        return value;
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * 添加完所有文字后释放索引和多余的空间。
+     */
+    void trimToSize() {
+        mIds = null;
+        if (mStrings.length != mSize) {
+            mStrings = Arrays.copyOf(mStrings, mSize);
+        }
+    }
+
+    private void rebuildIds() {
+        mIds = new HashMap<>();
+        for (int i = 0; i < mSize; i++) {
+            mIds.put(get(i), i);
+        }
+        // 之后添加的文字不在文件中
+        mBuffer = null;
+        mOffsets = mLengths = null;
+    }
+}
@@ -0,0 +1,249 @@
+package com.kokozu.widget.seatview;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 按列存储的座位数据，排、列、状态、类型各用一个基本类型数组保存，文字保存在字符串池中，
+ * 相同的文字只保留一份。设置给 {@link SeatView} 时不会创建座位对象，只在需要返回 {@link SeatData} 时创建。
+ * 设置之后通过 {@link #setState(int, int)}、{@link #setType(int, int)} 修改了座位时调用
+ * {@link #notifyItemChanged(int)}，添加了座位时调用 {@link #notifyDataSetChanged()}。
+ */
+public final class SeatTable extends SeatSource {
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    /*
+     * 每个座位的文字在 mLabels 中的位置
+     */
+    static final int LABEL_SEAT_ROW = 0;
+    static final int LABEL_SEAT_COL = 1;
+    static final int LABEL_SEAT_NO = 2;
+    static final int LABEL_PIECE_NO = 3;
+    static final int LABEL_COUNT = 4;
+
+    private int mSize;
+    private int[] mRows;
+    private int[] mCols;
+    private byte[] mStates;
+    private byte[] mTypes;
+
+    /**
+     * 文字在字符串池中的 id，index：座位的索引 * LABEL_COUNT + LABEL_*
+     */
+    private int[] mLabels;
+    private final SeatStrings mStrings;
+
+    public SeatTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity 预计的座位数量
+     */
+    public SeatTable(int capacity) {
+        capacity = Math.max(1, capacity);
+        mRows = new int[capacity];
+        mCols = new int[capacity];
+        mStates = new byte[capacity];
+        mTypes = new byte[capacity];
+        mLabels = new int[capacity * LABEL_COUNT];
+        mStrings = new SeatStrings();
+    }
+
+    /**
+     * 用已有的列创建，数组不会被复制。
+     */
+    SeatTable(
+            int size,
+            int[] rows,
+            int[] cols,
+            byte[] states,
+            byte[] types,
+            int[] labels,
+            SeatStrings strings) {
+        mSize = size;
+        mRows = rows;
+        mCols = cols;
+        mStates = states;
+        mTypes = types;
+        mLabels = labels;
+        mStrings = strings;
+    }
+
+    /**
+     * 把座位列表转换为按列存储的座位数据，相同的文字只保留一份。转换后不再引用列表中的座位对象，
+     * {@link SeatData#extra} 不会被保存。
+     *
+     * @param seats 座位列表
+     * @return 座位数据
+     */
+    public static SeatTable from(List<SeatData> seats) {
+        final int size = Utils.size(seats);
+        SeatTable table = new SeatTable(size);
+        for (int i = 0; i < size; i++) {
+            SeatData seat = seats.get(i);
+            table.addSeat(
+                    seat.point.x,
+                    seat.point.y,
+                    seat.state,
+                    seat.type,
+                    seat.seatRow,
+                    seat.seatCol,
+                    seat.seatNo,
+                    seat.pieceNo);
+        }
+        table.trimToSize();
+        return table;
+    }
+
+    /**
+     * 添加一个座位。
+     *
+     * @param row     座位图中的排
+     * @param col     座位图中的列
+     * @param state   座位的状态
+     * @param type    座位的类型
+     * @param seatRow 排号
+     * @param seatCol 座号
+     * @param seatNo  座位编号
+     * @param pieceNo 区号
+     */
+    public void addSeat(
+            int row,
+            int col,
+            @SeatData.SeatState int state,
+            @SeatData.SeatType int type,
+            String seatRow,
+            String seatCol,
+            String seatNo,
+            String pieceNo) {
+        if (mSize == mRows.length) {
+            resize(mRows.length + (mRows.length >> 1) + 1);
+        }
+        mRows[mSize] = row;
+        mCols[mSize] = col;
+        mStates[mSize] = (byte) state;
+        mTypes[mSize] = (byte) type;
+        final int base = mSize * LABEL_COUNT;
+        mLabels[base + LABEL_SEAT_ROW] = mStrings.add(seatRow);
+        mLabels[base + LABEL_SEAT_COL] = mStrings.add(seatCol);
+        mLabels[base + LABEL_SEAT_NO] = mStrings.add(seatNo);
+        mLabels[base + LABEL_PIECE_NO] = mStrings.add(pieceNo);
+        mSize++;
+    }
+
+    /**
+     * 修改座位的状态，设置给座位图之后需要调用 {@link #notifyItemChanged(int)}。
+     *
+     * @param index 座位的索引
+     * @param state 座位的状态
+     */
+    public void setState(int index, @SeatData.SeatState int state) {
+        checkIndex(index);
+        mStates[index] = (byte) state;
+    }
+
+    /**
+     * 修改座位的类型，设置给座位图之后需要调用 {@link #notifyItemChanged(int)}。
+     *
+     * @param index 座位的索引
+     * @param type  座位的类型
+     */
+    public void setType(int index, @SeatData.SeatType int type) {
+        checkIndex(index);
+        mTypes[index] = (byte) type;
+    }
+
+    /**
+     * 添加完所有座位后释放多余的空间。
+     */
+    public void trimToSize() {
+        if (mRows.length != mSize) {
+            resize(Math.max(1, mSize));
+        }
+        mStrings.trimToSize();
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    @Override
+    public int getSeatCount() {
+        return mSize;
+    }
+
+    @Override
+    public int getRow(int index) {
+        return mRows[index];
+    }
+
+    @Override
+    public int getCol(int index) {
+        return mCols[index];
+    }
+
+    @Override
+    @SeatData.SeatState
+    public int getState(int index) {
+        return mStates[index];
+    }
+
+    @Override
+    @SeatData.SeatType
+    public int getType(int index) {
+        return mTypes[index];
+    }
+
+    @Override
+    public String getSeatRow(int index) {
+        return getLabel(index, LABEL_SEAT_ROW);
+    }
+
+    @Override
+    public String getSeatCol(int index) {
+        return getLabel(index, LABEL_SEAT_COL);
+    }
+
+    @Override
+    public String getSeatNo(int index) {
+        return getLabel(index, LABEL_SEAT_NO);
+    }
+
+    @Override
+    public String getPieceNo(int index) {
+        return getLabel(index, LABEL_PIECE_NO);
+    }
+
+    /**
+     * 获取文字在字符串池中的 id。
+     *
+     * @param label LABEL_*
+     */
+    int getLabelId(int index, int label) {
+        return mLabels[index * LABEL_COUNT + label];
+    }
+
+    SeatStrings getStrings() {
+        return mStrings;
+    }
+
+    private String getLabel(int index, int label) {
+        return mStrings.get(mLabels[index * LABEL_COUNT + label]);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Invalid index " + index + ", size is " + mSize);
+        }
+    }
+
+    private void resize(int capacity) {
+        mRows = Arrays.copyOf(mRows, capacity);
+        mCols = Arrays.copyOf(mCols, capacity);
+        mStates = Arrays.copyOf(mStates, capacity);
+        mTypes = Arrays.copyOf(mTypes, capacity);
+        mLabels = Arrays.copyOf(mLabels, capacity * LABEL_COUNT);
+    }
+}
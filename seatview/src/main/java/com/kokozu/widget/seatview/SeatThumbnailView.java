@@ -4,10 +4,12 @@ import android.animation.ObjectAnimator;
 import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.PaintFlagsDrawFilter;
+import android.graphics.PorterDuff;
 import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.drawable.Drawable;
@@ -17,10 +19,7 @@ import android.util.AttributeSet;
 import android.view.View;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 
 /**
  * 座位图的缩略图。
@@ -31,6 +30,11 @@ import java.util.Map;
 public class SeatThumbnailView extends View {
 
     private static final int AUTO_HIDE_DELAY = 3000;
+
+    /**
+     * 超过该数量的座位变化时重新渲染整个座位层
+     */
+    private static final int MAX_DIRTY_SEATS = 32;
     private static final int CENTER_LINE_COLOR_DEFAULT = Color.parseColor("#666666");
 
     /*
@@ -50,17 +54,26 @@ public class SeatThumbnailView extends View {
     private Drawable mThumbnailBackground;
 
     /**
-     * 所有的座位，key：Seat.seatKey()
+     * 按排、列索引的所有座位，绘制时按数组遍历，避免创建迭代器。绑定到 SeatView 时与其共用
      */
-    private Map<String, SeatData> mSeatData = new HashMap<>();
+    private SeatGrid mSeatGrid = new SeatGrid();
+    private boolean isSeatGridShared;
+    private final SeatGrid.OnSeatChangedListener mSeatChangedListener =
+            new SeatGrid.OnSeatChangedListener() {
 
-    /**
-     * 已选的座位
-     */
-    private List<SeatData> mSelectedSeats = new ArrayList<>(6);
+                @Override
+                public void onSeatsChanged() {
+                    onSeatDataChanged();
+                }
+
+                @Override
+                public void onSeatChanged(int row, int col) {
+                    invalidateSeat(row, col);
+                }
+            };
 
     /**
-     * 已售的座位
+     * 未绑定到 SeatView 时设置的已售座位，重新设置座位数据时再次应用
      */
     private List<SeatData> mSoldSeats = new ArrayList<>();
 
@@ -74,6 +87,21 @@ public class SeatThumbnailView extends View {
 
     private PaintFlagsDrawFilter mDrawFilter;
 
+    /**
+     * 缓存的座位层，只在座位、已售、已选数据变化时重新渲染
+     */
+    private Bitmap mSeatLayerBitmap;
+    private Canvas mSeatLayerCanvas = new Canvas();
+    private Paint mSeatLayerPaint = new Paint();
+    private boolean isSeatLayerDirty = true;
+
+    /**
+     * 状态变化、需要重新渲染的座位，(row << 16) | col
+     */
+    private int[] mDirtyCells = new int[MAX_DIRTY_SEATS];
+    private int mDirtyCount;
+    private Rect mSeatRect = new Rect();
+
     private boolean mShowCenterLine;
     private Paint mCenterLinePaint;
     private float[] mCenterLineDash = new float[2];
@@ -152,6 +180,8 @@ public class SeatThumbnailView extends View {
         mCenterLinePaint.setStyle(Paint.Style.STROKE);
         mCenterLinePaint.setColor(centerLineColor);
         mCenterLinePaint.setStrokeWidth(2);
+
+        mSeatGrid.addOnSeatChangedListener(mSeatChangedListener);
     }
 
     @Override
@@ -159,7 +189,7 @@ public class SeatThumbnailView extends View {
         super.onDraw(canvas);
 
         // 座位数据为空
-        if (mMaxRow <= 0 || mMaxCol <= 0 || mSeatData == null || mSeatData.size() == 0) {
+        if (mMaxRow <= 0 || mMaxCol <= 0 || mSeatGrid.size() == 0) {
             return;
         }
 
@@ -169,63 +199,161 @@ public class SeatThumbnailView extends View {
             mThumbnailBackground.draw(canvas);
         }
 
-        // 画座位图
-        int drawStartX = mDrawRect.left;
-        int drawStartY = mDrawRect.top;
+        // 画座位图，座位层只在座位数据变化时重新渲染
+        if (isSeatLayerDirty || mSeatLayerBitmap == null) {
+            renderSeatLayer();
+        } else if (mDirtyCount > 0) {
+            renderDirtySeats();
+        }
+        if (mSeatLayerBitmap != null) {
+            canvas.drawBitmap(mSeatLayerBitmap, 0, 0, mSeatLayerPaint);
+        }
 
-        final float seatDrawWidth = mSeatWidth;
-        final float seatDrawHeight = mSeatHeight;
+        // 画当前显示的座位范围
+        float left = mDrawRect.left / 2 + (mDrawRect.width() + mDrawRect.left) * mRangeRect.left;
+        float right = mDrawRect.left / 2 + (mDrawRect.width() + mDrawRect.left) * mRangeRect.right;
+        float top = mDrawRect.top / 2 + (mDrawRect.height() + mDrawRect.top) * mRangeRect.top;
+        float bottom = mDrawRect.top / 2 + (mDrawRect.height() + mDrawRect.top) * mRangeRect.bottom;
+        canvas.drawRect(left, top, right, bottom, mSeatRangePaint);
 
-        int minGraphRow = Integer.MAX_VALUE;
-        int centerSeatX = mMaxCol / 2;
+        showThumbnailView();
+    }
+
+    private void renderSeatLayer() {
+        int width = getWidth();
+        int height = getHeight();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+
+        if (mSeatLayerBitmap == null
+                || mSeatLayerBitmap.getWidth() != width
+                || mSeatLayerBitmap.getHeight() != height) {
+            try {
+                mSeatLayerBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            } catch (OutOfMemoryError e) {
+                mSeatLayerBitmap = null;
+                return;
+            }
+            mSeatLayerCanvas.setBitmap(mSeatLayerBitmap);
+        } else {
+            mSeatLayerBitmap.eraseColor(Color.TRANSPARENT);
+        }
+        isSeatLayerDirty = false;
 
+        mDirtyCount = 0;
+
+        Canvas canvas = mSeatLayerCanvas;
         canvas.setDrawFilter(mDrawFilter);
-        canvas.save();
-        for (Map.Entry<String, SeatData> entry : mSeatData.entrySet()) {
-            SeatData seat = entry.getValue();
-            int row = seat.point.x;
-            int col = seat.point.y;
-            minGraphRow = Math.min(minGraphRow, row);
-
-            int left = (int) (drawStartX + seatDrawWidth * (col - 1));
-            int top = (int) (drawStartY + seatDrawHeight * (row - 1));
-            int right = (int) (left + seatDrawWidth);
-            int bottom = (int) (top + seatDrawHeight);
-
-            if (col > centerSeatX) {
-                left += 4;
-                right += 4;
+        for (int row = 1; row <= mMaxRow; row++) {
+            if (!mSeatGrid.hasSeatInRow(row)) {
+                continue;
+            }
+            for (int col = 1; col <= mMaxCol; col++) {
+                drawSeatAt(canvas, row, col);
             }
+        }
 
-            // 画座位
-            drawSeat(canvas, seat, left, top, right, bottom);
+        // 中心线
+        int centerSeatX = mMaxCol / 2;
+        if (mShowCenterLine && mSeatGrid.hasSeatInCol(centerSeatX)) {
+            int right = mDrawRect.left + mSeatWidth * centerSeatX;
+            drawCenterLine(canvas, right + 2, mDrawRect.top, mDrawRect.height());
+        }
+    }
 
-            // 中心线
-            if (mShowCenterLine && col == centerSeatX) {
-                drawCenterLine(canvas, right + 2, mDrawRect.top, mDrawRect.height());
+    /**
+     * 只重新渲染状态变化的座位。先清空座位所在的区域，再画该座位和左右相邻的座位。
+     */
+    private void renderDirtySeats() {
+        Canvas canvas = mSeatLayerCanvas;
+        for (int i = 0; i < mDirtyCount; i++) {
+            int row = mDirtyCells[i] >>> 16;
+            int col = mDirtyCells[i] & 0xFFFF;
+            getSeatRect(row, col, mSeatRect);
+
+            canvas.save();
+            canvas.clipRect(mSeatRect);
+            canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+            for (int c = col - 1; c <= col + 1; c++) {
+                drawSeatAt(canvas, row, c);
             }
+            canvas.restore();
         }
-        canvas.restore();
+        mDirtyCount = 0;
+    }
 
-        // 画当前显示的座位范围
-        float left = mDrawRect.left / 2 + (mDrawRect.width() + mDrawRect.left) * mRangeRect.left;
-        float right = mDrawRect.left / 2 + (mDrawRect.width() + mDrawRect.left) * mRangeRect.right;
-        float top = mDrawRect.top / 2 + (mDrawRect.height() + mDrawRect.top) * mRangeRect.top;
-        float bottom = mDrawRect.top / 2 + (mDrawRect.height() + mDrawRect.top) * mRangeRect.bottom;
-        canvas.drawRect(left, top, right, bottom, mSeatRangePaint);
+    private void drawSeatAt(Canvas canvas, int row, int col) {
+        int state = mSeatGrid.getState(row, col);
+        if (state == SeatGrid.NO_SEAT) {
+            return;
+        }
 
-        showThumbnailView();
+        int left = mDrawRect.left + mSeatWidth * (col - 1);
+        int top = mDrawRect.top + mSeatHeight * (row - 1);
+        int right = left + mSeatWidth;
+        int bottom = top + mSeatHeight;
+        if (col > mMaxCol / 2) {
+            left += 4;
+            right += 4;
+        }
+
+        // 画座位
+        drawSeat(canvas, state, mSeatGrid.getType(row, col), left, top, right, bottom);
     }
 
-    private void drawSeat(Canvas canvas, SeatData seat, int left, int top, int right, int bottom) {
+    /**
+     * 获取座位在缩略图中的区域，包含情侣座右边座位向左偏移的一个像素。
+     */
+    private void getSeatRect(int row, int col, Rect outRect) {
+        int left = mDrawRect.left + mSeatWidth * (col - 1);
+        int top = mDrawRect.top + mSeatHeight * (row - 1);
+        if (col > mMaxCol / 2) {
+            left += 4;
+        }
+        outRect.set(left - 1, top, left + mSeatWidth, top + mSeatHeight);
+    }
+
+    /**
+     * 座位的状态变化，下次绘制时重新渲染整个座位层。
+     */
+    private void invalidateSeatLayer() {
+        isSeatLayerDirty = true;
+        mDirtyCount = 0;
+        invalidate();
+    }
+
+    /**
+     * 座位的状态变化，下次绘制时只重新渲染该座位，并只重绘该座位的区域。
+     *
+     * @param row 排
+     * @param col 列
+     */
+    private void invalidateSeat(int row, int col) {
+        if (isSeatLayerDirty || mSeatLayerBitmap == null) {
+            invalidate();
+            return;
+        }
+        if (mDirtyCount == mDirtyCells.length) {
+            invalidateSeatLayer();
+            return;
+        }
+
+        mDirtyCells[mDirtyCount++] = (row << 16) | col;
+        getSeatRect(row, col, mSeatRect);
+        invalidate(mSeatRect);
+    }
+
+    private void drawSeat(
+            Canvas canvas, int state, int type, int left, int top, int right, int bottom) {
         Drawable drawable = null;
-        if (seat.state == SeatData.STATE_NORMAL) {
+        if (state == SeatData.STATE_NORMAL) {
             // 情侣座左边的座位
-            if (seat.isLoverLeftSeat()) {
+            if (type == SeatData.TYPE_LOVER_LEFT) {
                 drawable = mSeatLoverNormalL;
             }
             // 情侣座右边的座位
-            else if (seat.isLoverRightSeat()) {
+            else if (type == SeatData.TYPE_LOVER_RIGHT) {
                 drawable = mSeatLoverNormalR;
                 left -= 1;
             }
@@ -233,13 +361,13 @@ public class SeatThumbnailView extends View {
             else {
                 drawable = mSeatNormal;
             }
-        } else if (seat.state == SeatData.STATE_SOLD) {
+        } else if (state == SeatData.STATE_SOLD) {
             // 情侣座左边的座位
-            if (seat.isLoverLeftSeat()) {
+            if (type == SeatData.TYPE_LOVER_LEFT) {
                 drawable = mSeatLoverSoldL;
             }
             // 情侣座右边的座位
-            else if (seat.isLoverRightSeat()) {
+            else if (type == SeatData.TYPE_LOVER_RIGHT) {
                 drawable = mSeatLoverSoldR;
                 left -= 1;
             }
@@ -247,13 +375,13 @@ public class SeatThumbnailView extends View {
             else {
                 drawable = mSeatSold;
             }
-        } else if (seat.state == SeatData.STATE_SELECTED) {
+        } else if (state == SeatData.STATE_SELECTED) {
             // 情侣座左边的座位
-            if (seat.isLoverLeftSeat()) {
+            if (type == SeatData.TYPE_LOVER_LEFT) {
                 drawable = mSeatLoverSelectedL;
             }
             // 情侣座右边的座位
-            else if (seat.isLoverRightSeat()) {
+            else if (type == SeatData.TYPE_LOVER_RIGHT) {
                 drawable = mSeatLoverSelectedR;
                 left -= 1;
             }
@@ -312,17 +440,15 @@ public class SeatThumbnailView extends View {
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
         super.onSizeChanged(w, h, oldw, oldh);
 
+        isSeatLayerDirty = true;
         invalidate();
         requestLayout();
     }
 
     private void updateSoldSeat() {
-        if (Utils.isEmpty(mSoldSeats)) {
-            return;
-        }
-
+        // 状态发生变化的座位由座位网格通知
         for (SeatData soldSeat : mSoldSeats) {
-            mSeatData.put(soldSeat.seatKey(), soldSeat);
+            mSeatGrid.put(soldSeat);
         }
     }
 
@@ -336,69 +462,75 @@ public class SeatThumbnailView extends View {
             return;
         }
 
-        mSelectedSeats.clear();
-        mSeatData.clear();
+        // 不能修改 SeatView 的座位网格
+        if (isSeatGridShared) {
+            useSeatGrid(new SeatGrid(), false);
+        }
+        mSeatGrid.setSeats(seats);
+        updateSoldSeat();
+    }
 
-        mMaxRow = mMaxCol = 0;
-        final int size = Utils.size(seats);
-        for (int i = 0; i < size; i++) {
-            SeatData seat = seats.get(i);
-            mSeatData.put(seat.seatKey(), seat);
+    /**
+     * 与 SeatView 共用座位网格，座位的变化由座位网格通知。
+     *
+     * @param grid SeatView 的座位网格
+     */
+    void setSeatGrid(SeatGrid grid) {
+        mSoldSeats.clear();
+        useSeatGrid(grid, true);
+    }
 
-            mMaxRow = Math.max(seat.point.x, mMaxRow);
-            mMaxCol = Math.max(seat.point.y, mMaxCol);
-        }
+    private void useSeatGrid(SeatGrid grid, boolean shared) {
+        mSeatGrid.removeOnSeatChangedListener(mSeatChangedListener);
+        mSeatGrid = grid;
+        isSeatGridShared = shared;
+        grid.addOnSeatChangedListener(mSeatChangedListener);
+        onSeatDataChanged();
+    }
 
-        settingThumbnailViewSize();
-        updateSoldSeat();
-        invalidate();
+    private void onSeatDataChanged() {
+        mMaxRow = mSeatGrid.getMaxRow();
+        mMaxCol = mSeatGrid.getMaxCol();
+        if (mSeatGrid.size() == 0) {
+            mRangeRect.setEmpty();
+            mDrawRect.setEmpty();
+        } else {
+            settingThumbnailViewSize();
+        }
+        invalidateSeatLayer();
     }
 
     public void setSoldData(List<SeatData> seats) {
-        if (Utils.isEmpty(seats)) {
+        // 绑定到 SeatView 时已售状态由 SeatView 更新
+        if (Utils.isEmpty(seats) || isSeatGridShared) {
             return;
         }
 
+        // 已选的座位被售出时直接被替换为已售状态
         mSoldSeats = new ArrayList<>(seats);
-
-        if (mSeatData.size() == 0) {
-            invalidate();
-            return;
-        }
-
         updateSoldSeat();
+    }
 
-        if (Utils.isEmpty(mSelectedSeats)) {
-            invalidate();
+    public void setSelectedSeats(List<SeatData> selectedSeats) {
+        // 绑定到 SeatView 时已选状态由 SeatView 更新
+        if (isSeatGridShared) {
             return;
         }
 
-        // 判断选中座位是否已售
-        // 更新已选中座位图
-        boolean needUpdateSelected = false;
-        Iterator<SeatData> iterator = mSelectedSeats.iterator();
-        while (iterator.hasNext()) {
-            SeatData seat = iterator.next();
-            SeatData data = mSeatData.get(seat.seatKey());
-            if (data != null) {
-                // 已售
-                if (data.state == SeatData.STATE_SOLD) {
-                    needUpdateSelected = true;
-                }
-                if (needUpdateSelected) {
-                    iterator.remove();
+        for (int row = 0; row <= mMaxRow && mSeatGrid.size() > 0; row++) {
+            for (int col = 0; col <= mMaxCol; col++) {
+                if (mSeatGrid.getState(row, col) == SeatData.STATE_SELECTED) {
+                    mSeatGrid.setState(row, col, SeatData.STATE_NORMAL);
                 }
             }
         }
-        invalidate();
-    }
-
-    public void setSelectedSeats(List<SeatData> selectedSeats) {
-        mSelectedSeats.clear();
-        if (!Utils.isEmpty(selectedSeats)) {
-            mSelectedSeats.addAll(selectedSeats);
+        final int size = Utils.size(selectedSeats);
+        for (int i = 0; i < size; i++) {
+            SeatData seat = selectedSeats.get(i);
+            if (mSeatGrid.getState(seat.point.x, seat.point.y) == SeatData.STATE_NORMAL) {
+                mSeatGrid.setState(seat.point.x, seat.point.y, SeatData.STATE_SELECTED);
+            }
         }
-        invalidate();
     }
 
     private void settingThumbnailViewSize() {
@@ -425,19 +557,16 @@ public class SeatThumbnailView extends View {
     }
 
     void updateSeatArea(RectF rect) {
-        if (rect != null && !rect.isEmpty()) {
-            this.mRangeRect = rect;
+        // 范围没有变化时不需要重绘
+        if (rect != null && !rect.isEmpty() && !rect.equals(mRangeRect)) {
+            mRangeRect.set(rect);
             invalidate();
         }
     }
 
-    /** 清空座位信息。 */
+    /** 清空座位信息，不再与 SeatView 共用座位网格。 */
     void clearSeatData() {
-        mSeatData.clear();
         mSoldSeats.clear();
-        mSelectedSeats.clear();
-        mRangeRect.setEmpty();
-        mDrawRect.setEmpty();
-        invalidate();
+        useSeatGrid(new SeatGrid(), false);
     }
 }
@@ -0,0 +1,379 @@
+package com.kokozu.widget.seatview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.SparseArray;
+
+/**
+ * 座位层的分块缓存。按缩放比例把座位层渲染到固定大小的 Bitmap 块中，拖动时只需贴图；
+ * 座位状态变化时只重新渲染包含该座位的块。所有块共用一个 LRU 队列，按字节数淘汰。
+ */
+class SeatTileCache {
+
+    /**
+     * 块的边长
+     */
+    static final int TILE_SIZE = 256;
+
+    private static final int TILE_BYTES = TILE_SIZE * TILE_SIZE * 4;
+
+    /**
+     * 渲染座位层的回调。
+     */
+    interface Renderer {
+
+        /**
+         * 在座位层坐标系中绘制指定区域内的座位，col 1 的左边、row 1 的顶边为原点。
+         *
+         * @param canvas 画布
+         * @param scale  缩放比例
+         * @param left   区域左边
+         * @param top    区域顶边
+         * @param right  区域右边
+         * @param bottom 区域底边
+         */
+        void renderSeatLayer(Canvas canvas, float scale, int left, int top, int right, int bottom);
+    }
+
+    /**
+     * 一个缩放比例下的所有块
+     */
+    private static class Level {
+
+        final int key;
+        final float scale;
+        final int tileCols, tileRows;
+        final Tile[] tiles;
+        int tileCount;
+
+        Level(int key, float scale, int tileCols, int tileRows) {
+            this.key = key;
+            this.scale = scale;
+            this.tileCols = tileCols;
+            this.tileRows = tileRows;
+            this.tiles = new Tile[tileCols * tileRows];
+        }
+    }
+
+    private static class Tile {
+
+        Level level;
+        int index;
+        Bitmap bitmap;
+        boolean isDirty;
+
+        /*
+         * LRU 链表，head 为最近使用的块
+         */
+        Tile prev, next;
+    }
+
+    private final Renderer mRenderer;
+    private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Canvas mTileCanvas = new Canvas();
+
+    /**
+     * key：Float.floatToIntBits(scale)
+     */
+    private final SparseArray<Level> mLevels = new SparseArray<>();
+
+    private Tile mHead, mTail;
+    private int mTileCount;
+    private int mMaxBytes;
+
+    private int mSeatWidth, mSeatHeight;
+    private int mMaxRow, mMaxCol;
+
+    SeatTileCache(Renderer renderer, int maxBytes) {
+        this.mRenderer = renderer;
+        this.mMaxBytes = maxBytes;
+    }
+
+    /**
+     * 设置座位层的几何信息，变化时清空缓存。
+     */
+    void setGeometry(int seatWidth, int seatHeight, int maxRow, int maxCol) {
+        if (seatWidth != mSeatWidth
+                || seatHeight != mSeatHeight
+                || maxRow != mMaxRow
+                || maxCol != mMaxCol) {
+            clear();
+            mSeatWidth = seatWidth;
+            mSeatHeight = seatHeight;
+            mMaxRow = maxRow;
+            mMaxCol = maxCol;
+        }
+    }
+
+    /**
+     * 获取铺满 width * height 的视图所需的字节数。视图与块的边界不对齐时，每个方向最多多出一块。
+     *
+     * @param width  视图的宽度
+     * @param height 视图的高度
+     * @return 字节数
+     */
+    static int getViewportBytes(int width, int height) {
+        int tileCols = (width + TILE_SIZE - 1) / TILE_SIZE + 1;
+        int tileRows = (height + TILE_SIZE - 1) / TILE_SIZE + 1;
+        return tileCols * tileRows * TILE_BYTES;
+    }
+
+    void setMaxBytes(int maxBytes) {
+        mMaxBytes = maxBytes;
+        trimToSize(mMaxBytes);
+    }
+
+    int getMaxBytes() {
+        return mMaxBytes;
+    }
+
+    /**
+     * 获取缓存占用的字节数。
+     *
+     * @return 字节数
+     */
+    int getSizeBytes() {
+        return mTileCount * TILE_BYTES;
+    }
+
+    /**
+     * 用缓存的块绘制座位层。
+     *
+     * @param canvas     画布
+     * @param scale      缩放比例
+     * @param drawStartX 座位层左边在画布上的坐标
+     * @param drawStartY 座位层顶边在画布上的坐标
+     * @param clipLeft   需要绘制的区域
+     * @param clipTop    需要绘制的区域
+     * @param clipRight  需要绘制的区域
+     * @param clipBottom 需要绘制的区域
+     * @return 是否绘制成功，可见的块超出缓存容量时返回 false
+     */
+    boolean draw(
+            Canvas canvas,
+            float scale,
+            int drawStartX,
+            int drawStartY,
+            int clipLeft,
+            int clipTop,
+            int clipRight,
+            int clipBottom) {
+        Level level = obtainLevel(scale);
+        if (level == null) {
+            return false;
+        }
+
+        int firstTx = Math.max(0, (clipLeft - drawStartX) / TILE_SIZE);
+        int lastTx = Math.min(level.tileCols - 1, (clipRight - drawStartX) / TILE_SIZE);
+        int firstTy = Math.max(0, (clipTop - drawStartY) / TILE_SIZE);
+        int lastTy = Math.min(level.tileRows - 1, (clipBottom - drawStartY) / TILE_SIZE);
+        if (lastTx < firstTx || lastTy < firstTy) {
+            return true;
+        }
+
+        int visibleCount = (lastTx - firstTx + 1) * (lastTy - firstTy + 1);
+        if ((long) visibleCount * TILE_BYTES > mMaxBytes) {
+            return false;
+        }
+
+        for (int ty = firstTy; ty <= lastTy; ty++) {
+            for (int tx = firstTx; tx <= lastTx; tx++) {
+                Tile tile = obtainTile(level, ty * level.tileCols + tx);
+                if (tile == null) {
+                    return false;
+                }
+                canvas.drawBitmap(
+                        tile.bitmap,
+                        drawStartX + tx * TILE_SIZE,
+                        drawStartY + ty * TILE_SIZE,
+                        mPaint);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 座位状态变化，标记所有缩放比例下包含该座位的块需要重新渲染。
+     *
+     * @param row 排
+     * @param col 列
+     */
+    void invalidateSeat(int row, int col) {
+        for (int i = 0; i < mLevels.size(); i++) {
+            Level level = mLevels.valueAt(i);
+            float seatWidth = mSeatWidth * level.scale;
+            float seatHeight = mSeatHeight * level.scale;
+
+            // 情侣座右边的座位会向左偏移一个像素
+            int left = (int) (seatWidth * (col - 1)) - 1;
+            int top = (int) (seatHeight * (row - 1));
+            int right = (int) (seatWidth * col) + 1;
+            int bottom = (int) (seatHeight * row) + 1;
+
+            int firstTx = Math.max(0, left / TILE_SIZE);
+            int lastTx = Math.min(level.tileCols - 1, right / TILE_SIZE);
+            int firstTy = Math.max(0, top / TILE_SIZE);
+            int lastTy = Math.min(level.tileRows - 1, bottom / TILE_SIZE);
+            for (int ty = firstTy; ty <= lastTy; ty++) {
+                for (int tx = firstTx; tx <= lastTx; tx++) {
+                    Tile tile = level.tiles[ty * level.tileCols + tx];
+                    if (tile != null) {
+                        tile.isDirty = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 标记所有块需要重新渲染。
+     */
+    void invalidateAll() {
+        for (Tile tile = mHead; tile != null; tile = tile.next) {
+            tile.isDirty = true;
+        }
+    }
+
+    /**
+     * 清空缓存，释放所有块。
+     */
+    void clear() {
+        trimToSize(0);
+        mLevels.clear();
+    }
+
+    private Level obtainLevel(float scale) {
+        if (mSeatWidth <= 0 || mSeatHeight <= 0 || mMaxRow <= 0 || mMaxCol <= 0) {
+            return null;
+        }
+
+        int key = Float.floatToIntBits(scale);
+        Level level = mLevels.get(key);
+        if (level == null) {
+            int layerWidth = (int) Math.ceil(mSeatWidth * scale * mMaxCol);
+            int layerHeight = (int) Math.ceil(mSeatHeight * scale * mMaxRow);
+            int tileCols = layerWidth / TILE_SIZE + 1;
+            int tileRows = layerHeight / TILE_SIZE + 1;
+            level = new Level(key, scale, tileCols, tileRows);
+            mLevels.put(key, level);
+        }
+        return level;
+    }
+
+    private Tile obtainTile(Level level, int index) {
+        Tile tile = level.tiles[index];
+        if (tile == null) {
+            tile = newTile();
+            if (tile == null) {
+                return null;
+            }
+            if (level.tileCount == 0) {
+                // 复用的块可能是该缩放比例下的最后一块，此时缩放比例已被移除
+                mLevels.put(level.key, level);
+            }
+            tile.level = level;
+            tile.index = index;
+            tile.isDirty = true;
+            level.tiles[index] = tile;
+            level.tileCount++;
+        } else {
+            unlink(tile);
+        }
+        linkFirst(tile);
+
+        if (tile.isDirty) {
+            render(tile);
+        }
+        return tile;
+    }
+
+    private Tile newTile() {
+        // 达到上限时复用最久未使用的块
+        if ((mTileCount + 1) * TILE_BYTES > mMaxBytes && mTail != null) {
+            Tile tile = mTail;
+            detach(tile);
+            trimToSize(mMaxBytes - TILE_BYTES);
+            mTileCount++;
+            return tile;
+        }
+
+        Bitmap bitmap;
+        try {
+            bitmap = Bitmap.createBitmap(TILE_SIZE, TILE_SIZE, Bitmap.Config.ARGB_8888);
+        } catch (OutOfMemoryError e) {
+            return null;
+        }
+        Tile tile = new Tile();
+        tile.bitmap = bitmap;
+        mTileCount++;
+        return tile;
+    }
+
+    private void render(Tile tile) {
+        Level level = tile.level;
+        int left = (tile.index % level.tileCols) * TILE_SIZE;
+        int top = (tile.index / level.tileCols) * TILE_SIZE;
+
+        tile.bitmap.eraseColor(Color.TRANSPARENT);
+        mTileCanvas.setBitmap(tile.bitmap);
+        mTileCanvas.save();
+        mTileCanvas.translate(-left, -top);
+        mTileCanvas.clipRect(left, top, left + TILE_SIZE, top + TILE_SIZE);
+        mRenderer.renderSeatLayer(
+                mTileCanvas, level.scale, left, top, left + TILE_SIZE, top + TILE_SIZE);
+        mTileCanvas.restore();
+        mTileCanvas.setBitmap(null);
+        tile.isDirty = false;
+    }
+
+    private void trimToSize(int maxBytes) {
+        while (mTail != null && mTileCount * TILE_BYTES > maxBytes) {
+            Tile tile = mTail;
+            detach(tile);
+            tile.bitmap = null;
+        }
+    }
+
+    /**
+     * 把块从 LRU 队列和所属的缩放比例中移除，保留 Bitmap 以便复用。
+     */
+    private void detach(Tile tile) {
+        unlink(tile);
+        mTileCount--;
+
+        Level level = tile.level;
+        level.tiles[tile.index] = null;
+        if (--level.tileCount == 0) {
+            mLevels.remove(level.key);
+        }
+        tile.level = null;
+    }
+
+    private void linkFirst(Tile tile) {
+        tile.prev = null;
+        tile.next = mHead;
+        if (mHead != null) {
+            mHead.prev = tile;
+        }
+        mHead = tile;
+        if (mTail == null) {
+            mTail = tile;
+        }
+    }
+
+    private void unlink(Tile tile) {
+        if (tile.prev != null) {
+            tile.prev.next = tile.next;
+        } else if (mHead == tile) {
+            mHead = tile.next;
+        }
+        if (tile.next != null) {
+            tile.next.prev = tile.prev;
+        } else if (mTail == tile) {
+            mTail = tile.prev;
+        }
+        tile.prev = tile.next = null;
+    }
+}
@@ -1,5 +1,7 @@
 package com.kokozu.widget.seatview;
 
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
 import android.animation.ValueAnimator;
 import android.annotation.TargetApi;
 import android.content.Context;
@@ -12,12 +14,13 @@ import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.SystemClock;
 import android.support.annotation.IntDef;
 import android.support.annotation.Nullable;
 import android.util.AttributeSet;
 import android.util.Log;
-import android.util.SparseIntArray;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewConfiguration;
@@ -25,9 +28,11 @@ import android.view.ViewConfiguration;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * 座位图控件。
@@ -54,6 +59,16 @@ public class SeatView extends View {
      */
     private static final int DEFAULT_MAX_SELECTED_COUNT = 4;
 
+    /**
+     * 分排推荐座位的时间上限，保证在一帧内返回
+     */
+    private static final long SPLIT_RECOMMEND_TIMEOUT_NANOS = 8 * 1000 * 1000;
+
+    /**
+     * 异步推荐座位的线程，所有座位图共用
+     */
+    private static ExecutorService sRecommendExecutor;
+
     /**
      * 缩放的最大值
      */
@@ -87,9 +102,93 @@ public class SeatView extends View {
     private Drawable mSeatLoverSelectedL;
     private Drawable mSeatLoverSelectedR;
 
+    /**
+     * 座位图片，按 SeatSpriteAtlas.SPRITE_* 排列
+     */
+    private Drawable[] mSeatDrawables;
+
+    /**
+     * 座位图片的预渲染图集
+     */
+    private SeatSpriteAtlas mSpriteAtlas;
+    private boolean isSpriteAtlasReady;
+
+    /**
+     * 座位层的分块缓存
+     */
+    private boolean isTileCacheEnabled;
+    /**
+     * 是否设置了分块缓存的最大字节数，没有设置时按视图的大小缓存一屏的图块
+     */
+    private boolean isTileCacheSizeSet;
+    private SeatTileCache mTileCache;
+    private boolean isZoomAnimating;
+
+    /**
+     * 座位状态变化后需要重绘的区域，以及最近一次绘制时座位图的位置和缩放比例
+     */
+    private Rect mDirtyRect = new Rect();
+
+    /**
+     * 绘制时画布的裁剪区域，只有软件绘制时 invalidate(Rect) 才会缩小裁剪区域
+     */
+    private Rect mClipRect = new Rect();
+    private boolean hasDrawnViewport;
+    private float mDrawnCurrentX, mDrawnCurrentY, mDrawnScale;
+
     private List<SeatData> mSelectedSeats = new ArrayList<>(6);
     private List<SeatData> mSoldSeats = new ArrayList<>(50);
-    private Map<String, SeatData> mSeatData = new HashMap<>(50);
+
+    /**
+     * 按排、列索引的座位，用于查找座位和绘制时裁剪不可见的座位
+     */
+    private SeatGrid mSeatGrid = new SeatGrid();
+
+    /**
+     * 座位网格中座位的变化，只处理单个座位的变化，重新设置座位数据时在 onSeatDataChanged() 中处理
+     */
+    private final SeatGrid.OnSeatChangedListener mSeatChangedListener =
+            new SeatGrid.OnSeatChangedListener() {
+
+                @Override
+                public void onSeatsChanged() {
+                }
+
+                @Override
+                public void onSeatChanged(int row, int col) {
+                    onSeatStateChanged(row, col);
+                }
+            };
+
+    /**
+     * 座位数据的适配器，通过 setSeatData(List) 设置时为 null
+     */
+    private SeatSource mSeatSource;
+    private final SeatSource.Observer mSeatSourceObserver =
+            new SeatSource.Observer() {
+
+                @Override
+                void onChanged() {
+                    setSeatData(mSeatSource);
+                }
+
+                @Override
+                void onItemRangeChanged(int start, int count) {
+                    onSeatSourceChanged(start, count);
+                }
+            };
+
+    /**
+     * 选座规则，随座位状态的变化增量更新
+     */
+    private SeatSelectRegular mSeatRegular = new SeatSelectRegular(mSeatGrid);
+
+    /**
+     * 最近一帧渲染、可见和裁剪掉的座位数量。使用分块缓存时渲染的只有重新渲染到块中的座位
+     */
+    private int mDrawnSeatCount;
+    private int mVisibleSeatCount;
+    private int mCulledSeatCount;
 
     private PaintFlagsDrawFilter mDrawFilter;
 
@@ -99,6 +198,7 @@ public class SeatView extends View {
     private boolean mSelectable;
     private boolean isCheckRegularWhilePickSeat;
     private boolean isCheckRegularWhileRecommend;
+    private boolean isSplitRecommendEnabled;
 
     /**
      * 座位图中轴线
@@ -124,6 +224,13 @@ public class SeatView extends View {
      */
     private BestSeatFinder mBestSeatFinder;
 
+    /**
+     * 异步推荐座位。座位状态每次变化时加 1，推荐完成时不相等则丢弃结果
+     */
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private int mRecommendGeneration;
+    private Future<?> mRecommendFuture;
+
     public SeatView(Context context) {
         super(context);
         init(context, null, 0, 0);
@@ -170,9 +277,14 @@ public class SeatView extends View {
                 a.getBoolean(R.styleable.SeatView_seat_checkRegularWhilePickSeat, false);
         this.isCheckRegularWhileRecommend =
                 a.getBoolean(R.styleable.SeatView_seat_checkRegularWhileRecommend, false);
+        this.isSplitRecommendEnabled =
+                a.getBoolean(R.styleable.SeatView_seat_splitRecommendEnabled, false);
 
         this.mShowCenterLine = a.getBoolean(R.styleable.SeatView_seat_showCenterLine, true);
         this.mShowSeatNo = a.getBoolean(R.styleable.SeatView_seat_showSeatNo, false);
+        this.isTileCacheEnabled = a.getBoolean(R.styleable.SeatView_seat_tileCacheEnabled, false);
+        this.isTileCacheSizeSet = a.hasValue(R.styleable.SeatView_seat_tileCacheSize);
+        int tileCacheSize = a.getInteger(R.styleable.SeatView_seat_tileCacheSize, 0);
         a.recycle();
 
         mCenterLinePainter = new CenterLinePainter(context, attrs, defStyleAttr, defStyleRes);
@@ -198,7 +310,78 @@ public class SeatView extends View {
         mCurrentX = mCurrentY = 0;
         mTouchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
 
-        mBestSeatFinder = new BestSeatFinder();
+        mBestSeatFinder = new BestSeatFinder(mSeatGrid);
+        mSeatGrid.addOnSeatChangedListener(mSeatChangedListener);
+
+        mSeatDrawables =
+                new Drawable[] {
+                    mSeatNormal,
+                    mSeatSold,
+                    mSeatSelected,
+                    mSeatLoverNormalL,
+                    mSeatLoverNormalR,
+                    mSeatLoverSoldL,
+                    mSeatLoverSoldR,
+                    mSeatLoverSelectedL,
+                    mSeatLoverSelectedR
+                };
+        for (Drawable drawable : mSeatDrawables) {
+            if (drawable != null) {
+                drawable.setCallback(this);
+            }
+        }
+        mSpriteAtlas = new SeatSpriteAtlas(mSeatDrawables);
+        mTileCache =
+                new SeatTileCache(
+                        new SeatTileCache.Renderer() {
+
+                            @Override
+                            public void renderSeatLayer(
+                                    Canvas canvas,
+                                    float scale,
+                                    int left,
+                                    int top,
+                                    int right,
+                                    int bottom) {
+                                mDrawnSeatCount +=
+                                        drawSeats(
+                                                canvas,
+                                                0,
+                                                0,
+                                                mSeatWidth * scale,
+                                                mSeatHeight * scale,
+                                                left,
+                                                top,
+                                                right,
+                                                bottom);
+                            }
+                        },
+                        tileCacheSize);
+    }
+
+    @Override
+    protected boolean verifyDrawable(Drawable who) {
+        return mSpriteAtlas.contains(who) || super.verifyDrawable(who);
+    }
+
+    @Override
+    public void invalidateDrawable(Drawable drawable) {
+        // 座位图片变化时重建图集
+        if (mSpriteAtlas.contains(drawable)) {
+            mSpriteAtlas.invalidate();
+            mTileCache.invalidateAll();
+            invalidate();
+        } else {
+            super.invalidateDrawable(drawable);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mSpriteAtlas.release();
+        mTileCache.clear();
+        cancelRecommendSeats();
     }
 
     @Override
@@ -223,6 +406,10 @@ public class SeatView extends View {
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
         super.onSizeChanged(w, h, oldw, oldh);
 
+        if (!isTileCacheSizeSet) {
+            mTileCache.setMaxBytes(SeatTileCache.getViewportBytes(w, h));
+        }
+        hasDrawnViewport = false;
         invalidate();
         requestLayout();
     }
@@ -232,8 +419,8 @@ public class SeatView extends View {
         super.onDraw(canvas);
 
         // 座位数据为空
-        if (mSeatData == null || mSeatData.size() == 0) {
-            Log.e(TAG, "mSeatData is Empty.");
+        if (mSeatGrid.size() == 0) {
+            Log.e(TAG, "mSeatGrid is Empty.");
             return;
         }
 
@@ -277,42 +464,76 @@ public class SeatView extends View {
         }
 
         float lineStartY = mDrawStartY;
-        int minGraphRow = Integer.MAX_VALUE;
+        int minGraphRow = mSeatGrid.getMinRow();
 
         canvas.setDrawFilter(mDrawFilter);
         canvas.save();
         final float seatDrawWidth = mSeatWidth * mScale;
         final float seatDrawHeight = mSeatHeight * mScale;
+        isSpriteAtlasReady = mSpriteAtlas.prepare(mSeatWidth, mSeatHeight, mScale);
 
         float lineX = -1;
         float lineY = -1;
-
-        for (Map.Entry<String, SeatData> stringSeatEntry : mSeatData.entrySet()) {
-            SeatData seat = stringSeatEntry.getValue();
-            int graphCol = seat.point.y;
-            int graphRow = seat.point.x;
-
-            minGraphRow = Math.min(minGraphRow, graphRow);
-
-            int left = (int) (mDrawStartX + seatDrawWidth * (graphCol - 1));
-            int top = (int) (mDrawStartY + seatDrawHeight * (graphRow - 1));
-            int right = (int) (left + seatDrawWidth);
-            int bottom = (int) (top + seatDrawHeight);
-            if (lineX == -1 && graphCol == centerSeatX + 1) {
-                lineX = left;
-            }
-            if (lineY == -1 && graphRow == centerSeatY + 1) {
-                lineY = top;
+        if (mSeatGrid.hasSeatInCol(centerSeatX + 1)) {
+            lineX = (int) (mDrawStartX + seatDrawWidth * centerSeatX);
+        }
+        if (mSeatGrid.hasSeatInRow(centerSeatY + 1)) {
+            lineY = (int) (mDrawStartY + seatDrawHeight * centerSeatY);
+        }
+
+        // 只绘制与裁剪区域相交的座位，硬件加速时裁剪区域始终是整个控件
+        final boolean hasClip =
+                canvas.getClipBounds(mClipRect) && mClipRect.intersect(0, 0, width, height);
+
+        // 座位层的位置取整后再绘制，贴图和直接绘制时座位的像素位置相同
+        final int seatLayerX = Math.round(mDrawStartX);
+        final int seatLayerY = Math.round(mDrawStartY);
+
+        // 拖动时用分块缓存贴图，缩放过程中比例每帧都在变，直接绘制
+        mDrawnSeatCount = 0;
+        mVisibleSeatCount = 0;
+        boolean drawnByTiles = false;
+        if (hasClip && isTileCacheEnabled && mTouchMode != ZOOM && !isZoomAnimating) {
+            mTileCache.setGeometry(mSeatWidth, mSeatHeight, mMaxRow, mMaxCol);
+            drawnByTiles =
+                    mTileCache.draw(
+                            canvas,
+                            mScale,
+                            seatLayerX,
+                            seatLayerY,
+                            mClipRect.left,
+                            mClipRect.top,
+                            mClipRect.right,
+                            mClipRect.bottom);
+        }
+        if (hasClip) {
+            // 贴图时只统计可见的座位，不绘制
+            mVisibleSeatCount =
+                    drawSeats(
+                            drawnByTiles ? null : canvas,
+                            seatLayerX,
+                            seatLayerY,
+                            seatDrawWidth,
+                            seatDrawHeight,
+                            mClipRect.left,
+                            mClipRect.top,
+                            mClipRect.right,
+                            mClipRect.bottom);
+            if (!drawnByTiles) {
+                mDrawnSeatCount += mVisibleSeatCount;
             }
-
-            // 画座位
-            drawSeat(canvas, seat, left, top, right, bottom);
         }
+        mCulledSeatCount = Math.max(0, mSeatGrid.size() - mVisibleSeatCount);
 
         final float seatTotalWidth = seatDrawWidth * mMaxCol;
         final float seatTotalHeight = seatDrawHeight * mMaxRow;
         settingScreenSeatRect(seatTotalWidth, seatTotalHeight);
 
+        hasDrawnViewport = true;
+        mDrawnCurrentX = mCurrentX;
+        mDrawnCurrentY = mCurrentY;
+        mDrawnScale = mScale;
+
         canvas.restore();
 
         // 画座位的中心线
@@ -335,6 +556,67 @@ public class SeatView extends View {
         }
     }
 
+    /**
+     * 绘制与指定区域相交的座位，只遍历区域内的排和列，多算一排（列）避免取整误差。
+     * canvas 为 null 时只统计座位的数量。
+     *
+     * @return 区域内的座位数量
+     */
+    private int drawSeats(
+            Canvas canvas,
+            float drawStartX,
+            float drawStartY,
+            float seatDrawWidth,
+            float seatDrawHeight,
+            int clipLeft,
+            int clipTop,
+            int clipRight,
+            int clipBottom) {
+        final int firstCol =
+                Math.max(1, (int) Math.floor((clipLeft - drawStartX) / seatDrawWidth));
+        final int lastCol =
+                Math.min(
+                        mMaxCol,
+                        (int) Math.ceil((clipRight - drawStartX) / seatDrawWidth) + 1);
+        final int firstRow =
+                Math.max(1, (int) Math.floor((clipTop - drawStartY) / seatDrawHeight));
+        final int lastRow =
+                Math.min(
+                        mMaxRow,
+                        (int) Math.ceil((clipBottom - drawStartY) / seatDrawHeight) + 1);
+
+        int drawnCount = 0;
+        for (int graphRow = firstRow; graphRow <= lastRow; graphRow++) {
+            if (!mSeatGrid.hasSeatInRow(graphRow)) {
+                continue;
+            }
+            int top = (int) (drawStartY + seatDrawHeight * (graphRow - 1));
+            int bottom = (int) (top + seatDrawHeight);
+            for (int graphCol = firstCol; graphCol <= lastCol; graphCol++) {
+                int state = mSeatGrid.getState(graphRow, graphCol);
+                if (state == SeatGrid.NO_SEAT) {
+                    continue;
+                }
+                int left = (int) (drawStartX + seatDrawWidth * (graphCol - 1));
+                int right = (int) (left + seatDrawWidth);
+
+                // 画座位
+                if (canvas != null) {
+                    drawSeat(
+                            canvas,
+                            state,
+                            mSeatGrid.getType(graphRow, graphCol),
+                            left,
+                            top,
+                            right,
+                            bottom);
+                }
+                drawnCount++;
+            }
+        }
+        return drawnCount;
+    }
+
     private void settingScreenSeatRect(float totalWidth, float totalHeight) {
         float left = Math.min(mDrawStartX, 0);
         float top = Math.min(mDrawStartY, 0);
@@ -351,61 +633,68 @@ public class SeatView extends View {
         }
     }
 
-    private void drawSeat(Canvas canvas, SeatData seat, int left, int top, int right, int bottom) {
-        Rect bounds = new Rect(left, top, right, bottom);
-        Drawable drawable;
+    private void drawSeat(
+            Canvas canvas, int state, int type, int left, int top, int right, int bottom) {
+        int sprite;
 
         // 座位可选
-        if (seat.state == SeatData.STATE_NORMAL) {
+        if (state == SeatData.STATE_NORMAL) {
             // 情侣座左边的座位
-            if (seat.isLoverLeftSeat()) {
-                drawable = mSeatLoverNormalL;
+            if (type == SeatData.TYPE_LOVER_LEFT) {
+                sprite = SeatSpriteAtlas.SPRITE_LOVER_NORMAL_L;
             }
             // 情侣座右边的座位
-            else if (seat.isLoverRightSeat()) {
-                drawable = mSeatLoverNormalR;
-                bounds.left -= 1;
+            else if (type == SeatData.TYPE_LOVER_RIGHT) {
+                sprite = SeatSpriteAtlas.SPRITE_LOVER_NORMAL_R;
+                left -= 1;
             }
             // 普通座位
             else {
-                drawable = mSeatNormal;
+                sprite = SeatSpriteAtlas.SPRITE_NORMAL;
             }
         }
         // 座位已选
-        else if (seat.state == SeatData.STATE_SELECTED) {
+        else if (state == SeatData.STATE_SELECTED) {
             // 情侣座左边的座位
-            if (seat.isLoverLeftSeat()) {
-                drawable = mSeatLoverSelectedL;
+            if (type == SeatData.TYPE_LOVER_LEFT) {
+                sprite = SeatSpriteAtlas.SPRITE_LOVER_SELECTED_L;
             }
             // 情侣座右边的座位
-            else if (seat.isLoverRightSeat()) {
-                drawable = mSeatLoverSelectedR;
-                bounds.left -= 1;
+            else if (type == SeatData.TYPE_LOVER_RIGHT) {
+                sprite = SeatSpriteAtlas.SPRITE_LOVER_SELECTED_R;
+                left -= 1;
             }
             // 普通座位
             else {
-                drawable = mSeatSelected;
+                sprite = SeatSpriteAtlas.SPRITE_SELECTED;
             }
         }
         // 座位已售
         else {
             // 情侣座左边的座位
-            if (seat.isLoverLeftSeat()) {
-                drawable = mSeatLoverSoldL;
+            if (type == SeatData.TYPE_LOVER_LEFT) {
+                sprite = SeatSpriteAtlas.SPRITE_LOVER_SOLD_L;
             }
             // 情侣座右边的座位
-            else if (seat.isLoverRightSeat()) {
-                drawable = mSeatLoverSoldR;
-                bounds.left -= 1;
+            else if (type == SeatData.TYPE_LOVER_RIGHT) {
+                sprite = SeatSpriteAtlas.SPRITE_LOVER_SOLD_R;
+                left -= 1;
             }
             // 普通座位
             else {
-                drawable = mSeatSold;
+                sprite = SeatSpriteAtlas.SPRITE_SOLD;
             }
         }
-        if (drawable != null) {
-            drawable.setBounds(bounds);
-            drawable.draw(canvas);
+
+        // 优先从图集贴图，图集不可用时直接画图片
+        if (isSpriteAtlasReady) {
+            mSpriteAtlas.draw(canvas, sprite, left, top, right, bottom);
+        } else {
+            Drawable drawable = mSeatDrawables[sprite];
+            if (drawable != null) {
+                drawable.setBounds(left, top, right, bottom);
+                drawable.draw(canvas);
+            }
         }
     }
 
@@ -510,8 +799,7 @@ public class SeatView extends View {
             return;
         }
 
-        String key = row + "-" + col;
-        SeatData seat = mSeatData.get(key);
+        SeatData seat = mSeatGrid.get(row, col);
         if (seat == null) {
             return;
         }
@@ -519,7 +807,7 @@ public class SeatView extends View {
         boolean isMatchRegular = true;
         // 已选座位
         if (seat.state == SeatData.STATE_SELECTED) {
-            seat.unSelectSeat();
+            unSelectSeat(seat);
             mSelectedSeats.remove(seat);
 
             // 情侣座
@@ -537,7 +825,7 @@ public class SeatView extends View {
             }
 
             // 判断选座规则：先把座位放到已选中的座位列表中，然后判断规则
-            seat.selectSeat();
+            selectSeat(seat);
             mSelectedSeats.add(seat);
 
             // 情侣座
@@ -554,7 +842,7 @@ public class SeatView extends View {
         if (mChooseSeatListener != null && isMatchRegular) {
             mChooseSeatListener.onSelectedSeatChanged(mSelectedSeats);
         }
-        invalidate();
+        invalidateChangedSeats();
     }
 
     private void performMoveEvent(MotionEvent event) {
@@ -614,16 +902,80 @@ public class SeatView extends View {
         }
     }
 
+    /**
+     * 选中座位，座位的状态通过座位网格修改。
+     *
+     * @return 座位网格中的座位，没有该座位时返回 null
+     */
+    private SeatData selectSeat(SeatData seat) {
+        return changeSeatState(seat, SeatData.STATE_NORMAL, SeatData.STATE_SELECTED);
+    }
+
+    private SeatData unSelectSeat(SeatData seat) {
+        return changeSeatState(seat, SeatData.STATE_SELECTED, SeatData.STATE_NORMAL);
+    }
+
+    private SeatData changeSeatState(SeatData seat, int fromState, int toState) {
+        final int row = seat.point.x;
+        final int col = seat.point.y;
+        if (mSeatGrid.getState(row, col) == fromState) {
+            mSeatGrid.setState(row, col, toState);
+        }
+        return mSeatGrid.get(row, col);
+    }
+
+    /**
+     * 座位的状态发生了变化。
+     *
+     * @param row 排
+     * @param col 列
+     */
+    private void onSeatStateChanged(int row, int col) {
+        mTileCache.invalidateSeat(row, col);
+        mSeatRegular.onSeatChanged(row, col);
+        mRecommendGeneration++;
+
+        // 记录座位在屏幕上的区域，情侣座右边的座位会向左偏移一个像素
+        if (hasDrawnViewport) {
+            final float seatDrawWidth = mSeatWidth * mScale;
+            final float seatDrawHeight = mSeatHeight * mScale;
+            int left = Math.round(mDrawStartX) + (int) (seatDrawWidth * (col - 1));
+            int top = Math.round(mDrawStartY) + (int) (seatDrawHeight * (row - 1));
+            mDirtyRect.union(
+                    left - 1,
+                    top - 1,
+                    (int) (left + seatDrawWidth) + 1,
+                    (int) (top + seatDrawHeight) + 1);
+        }
+    }
+
+    /**
+     * 只重绘状态发生变化的座位，座位图的位置或缩放比例变化时重绘整个控件。
+     */
+    private void invalidateChangedSeats() {
+        boolean viewportChanged =
+                !hasDrawnViewport
+                        || mScale != mDrawnScale
+                        || mCurrentX != mDrawnCurrentX
+                        || mCurrentY != mDrawnCurrentY;
+        if (viewportChanged) {
+            invalidate();
+        } else if (!mDirtyRect.isEmpty()) {
+            invalidate(mDirtyRect);
+        }
+        mDirtyRect.setEmpty();
+    }
+
     private boolean checkSeatRegular(SeatData seat, boolean selectSeat) {
         // 选座时校验选座规则
         if (isCheckRegularWhilePickSeat) {
             // 该座位不符合选座规则
             if (!isSelectedSeatLegal()) {
                 if (selectSeat) {
-                    seat.unSelectSeat();
+                    unSelectSeat(seat);
                     mSelectedSeats.remove(seat);
                 } else {
-                    seat.selectSeat();
+                    selectSeat(seat);
                     mSelectedSeats.add(seat);
                 }
                 if (mChooseSeatListener != null) {
@@ -638,11 +990,11 @@ public class SeatView extends View {
     private boolean selectLoverSeat(SeatData seat) {
         int seatRow = seat.point.x;
         int seatCol = seat.point.y + (seat.isLoverLeftSeat() ? 1 : -1);
-        SeatData other = mSeatData.get(seatRow + "-" + seatCol);
+        SeatData other = mSeatGrid.get(seatRow, seatCol);
 
         // 若选中另一个情侣座则超过最大数量
         if (Utils.size(mSelectedSeats) >= mMaxSelectedCount) {
-            seat.unSelectSeat();
+            unSelectSeat(seat);
             mSelectedSeats.remove(seat);
 
             if (mChooseSeatListener != null) {
@@ -650,7 +1002,7 @@ public class SeatView extends View {
             }
             return false;
         } else if (other != null && other.state == SeatData.STATE_NORMAL) {
-            other.selectSeat();
+            selectSeat(other);
             mSelectedSeats.add(other);
 
             if (checkSeatRegular(seat, true)) {
@@ -659,7 +1011,7 @@ public class SeatView extends View {
                 }
                 return true;
             } else {
-                other.unSelectSeat();
+                unSelectSeat(other);
                 mSelectedSeats.remove(other);
             }
         }
@@ -670,9 +1022,9 @@ public class SeatView extends View {
         int graphRow = seat.point.x;
         int graphCol = seat.point.y + (seat.isLoverLeftSeat() ? 1 : -1);
 
-        SeatData loverOther = mSeatData.get(graphRow + "-" + graphCol);
+        SeatData loverOther = mSeatGrid.get(graphRow, graphCol);
         if (loverOther != null && loverOther.state == SeatData.STATE_SELECTED) {
-            loverOther.unSelectSeat();
+            unSelectSeat(loverOther);
             mSelectedSeats.remove(loverOther);
         }
     }
@@ -704,7 +1056,17 @@ public class SeatView extends View {
                         invalidate();
                     }
                 });
+        anim.addListener(
+                new AnimatorListenerAdapter() {
+
+                    @Override
+                    public void onAnimationEnd(Animator animation) {
+                        isZoomAnimating = false;
+                        invalidate();
+                    }
+                });
         anim.setTarget(this);
+        isZoomAnimating = true;
         anim.start();
     }
 
@@ -757,14 +1119,13 @@ public class SeatView extends View {
         }
 
         mSoldSeats.addAll(seats);
-        mBestSeatFinder.setSoldSeats(seats);
 
         // 判断选中座位是否已售
         if (!Utils.isEmpty(mSelectedSeats)) {
             // 更新已选中座位图
             boolean needUpdateSelected = false;
             for (SeatData seat : mSelectedSeats) {
-                SeatData data = mSeatData.get(seat.seatKey());
+                SeatData data = mSeatGrid.get(seat.point.x, seat.point.y);
                 // 已售
                 if (data != null && data.state == SeatData.STATE_SOLD) {
                     needUpdateSelected = true;
@@ -773,9 +1134,9 @@ public class SeatView extends View {
 
             if (needUpdateSelected) {
                 for (SeatData seat : mSelectedSeats) {
-                    SeatData data = mSeatData.get(seat.seatKey());
+                    SeatData data = mSeatGrid.get(seat.point.x, seat.point.y);
                     if (data != null) {
-                        data.unSelectSeat(); // 重置已选座位
+                        unSelectSeat(data); // 重置已选座位
                     }
                 }
                 mSelectedSeats.clear(); // 清空已选座位图
@@ -788,19 +1149,118 @@ public class SeatView extends View {
             }
         }
         updateSoldSeat();
-        invalidate();
+        invalidateChangedSeats();
     }
 
+    /**
+     * 增量更新座位的已售状态，只处理发生变化的座位。已选的座位被售出时取消选中，
+     * 并回调 {@link OnChooseSeatListener#onSelectedSeatSold()}。
+     *
+     * @param soldSeats     新售出的座位，可以为 null
+     * @param releasedSeats 重新可选的座位，可以为 null
+     */
+    public void updateSoldData(List<SeatData> soldSeats, List<SeatData> releasedSeats) {
+        boolean selectedSeatSold = false;
+        final int soldSize = Utils.size(soldSeats);
+        for (int i = 0; i < soldSize; i++) {
+            SeatData seat = soldSeats.get(i);
+            selectedSeatSold |= applySoldChange(seat.point.x, seat.point.y, true);
+        }
+        final int releasedSize = Utils.size(releasedSeats);
+        for (int i = 0; i < releasedSize; i++) {
+            SeatData seat = releasedSeats.get(i);
+            applySoldChange(seat.point.x, seat.point.y, false);
+        }
+        onSoldChangesApplied(selectedSeatSold);
+    }
+
+    /**
+     * 设置 {@link SeatSoldCodec} 编码的已售快照，直接更新座位网格，不创建座位对象。
+     * 快照中未售的座位恢复为可选，已选的座位被售出时回调
+     * {@link OnChooseSeatListener#onSelectedSeatSold()}。
+     *
+     * @param data 编码后的已售快照
+     * @throws IllegalArgumentException 快照的版本不支持、数据不完整，
+     *                                  或快照的最大排、最大列与当前座位图不同
+     */
+    public void setSoldSnapshot(byte[] data) {
+        if (isSeatEmpty()) {
+            return;
+        }
+
+        SeatBits soldBits =
+                SeatSoldCodec.decode(data, mSeatGrid.getMaxRow(), mSeatGrid.getMaxCol());
+        boolean selectedSeatSold = false;
+        for (int row = 0; row <= mSeatGrid.getMaxRow(); row++) {
+            for (int col = 0; col <= mSeatGrid.getMaxCol(); col++) {
+                selectedSeatSold |= applySoldChange(row, col, soldBits.get(row, col));
+            }
+        }
+        onSoldChangesApplied(selectedSeatSold);
+    }
+
+    /**
+     * 更新一个座位的已售状态。
+     *
+     * @param row  排
+     * @param col  列
+     * @param sold 是否已售
+     */
+    public void setSeatSold(int row, int col, boolean sold) {
+        onSoldChangesApplied(applySoldChange(row, col, sold));
+    }
+
+    /**
+     * 修改座位的已售状态，同步更新推荐座位、缩略图和需要重绘的区域。
+     *
+     * @return 是否有已选的座位被售出
+     */
+    boolean applySoldChange(int row, int col, boolean sold) {
+        final int state = mSeatGrid.getState(row, col);
+        if (state == SeatGrid.NO_SEAT || (state == SeatData.STATE_SOLD) == sold) {
+            return false;
+        }
+
+        boolean selectedSeatSold = false;
+        if (sold) {
+            if (state == SeatData.STATE_SELECTED) {
+                SeatData seat = mSeatGrid.get(row, col);
+                mSelectedSeats.remove(seat);
+                // 情侣座的另一个座位也取消选中
+                if (seat.isLoverSeat()) {
+                    unSelectLoverSeat(seat);
+                }
+                selectedSeatSold = true;
+            }
+            mSeatGrid.setState(row, col, SeatData.STATE_SOLD);
+        } else {
+            mSeatGrid.setState(row, col, SeatData.STATE_NORMAL);
+        }
+
+        return selectedSeatSold;
+    }
+
+    /**
+     * 增量更新已售状态后通知选座的变化，并重绘发生变化的座位。
+     */
+    void onSoldChangesApplied(boolean selectedSeatSold) {
+        if (selectedSeatSold && mChooseSeatListener != null) {
+            mChooseSeatListener.onSelectedSeatChanged(mSelectedSeats);
+            mChooseSeatListener.onSelectedSeatSold();
+        }
+        invalidateChangedSeats();
+    }
+
+    /**
+     * 把通过 {@link #setSoldData(List)} 设置的已售座位应用到座位网格，座位图中没有的座位会被忽略。
+     */
     private void updateSoldSeat() {
         if (isSeatEmpty() || Utils.isEmpty(mSoldSeats)) {
             return;
         }
+        // 状态发生变化的座位由座位网格通知
         for (SeatData soldSeat : mSoldSeats) {
-            mSeatData.put(soldSeat.seatKey(), soldSeat);
-        }
-
-        if (mSeatThumbnailView != null) {
-            mSeatThumbnailView.setSoldData(mSoldSeats);
+            mSeatGrid.setState(soldSeat.point.x, soldSeat.point.y, SeatData.STATE_SOLD);
         }
     }
 
@@ -810,7 +1270,16 @@ public class SeatView extends View {
      * @param view 缩略图
      */
     public void attachThumbnailView(SeatThumbnailView view) {
+        if (mSeatThumbnailView == view) {
+            return;
+        }
+        if (mSeatThumbnailView != null) {
+            mSeatThumbnailView.clearSeatData();
+        }
         mSeatThumbnailView = view;
+        if (view != null) {
+            view.setSeatGrid(mSeatGrid);
+        }
     }
 
     private void updateThumbnailView() {
@@ -825,50 +1294,91 @@ public class SeatView extends View {
      * @param seats 座位列表
      */
     public void setSeatData(List<SeatData> seats) {
-        mSelectedSeats.clear();
-        mSeatData.clear();
-        mBestSeatFinder.setSeats(seats);
+        setSeatSource(null);
+        mSeatGrid.setSeats(seats);
+        onSeatDataChanged();
+    }
 
-        if (Utils.isEmpty(seats)) {
+    /**
+     * 通过适配器设置座位图的数据，例如 {@link SeatTable}，不会为每个座位创建对象。
+     * 适配器的数据发生变化时会自动刷新。已售状态只来自适配器，之前通过 {@link #setSoldData(List)}
+     * 设置的已售座位会被清除。
+     *
+     * @param source 座位数据
+     */
+    public void setSeatData(SeatSource source) {
+        setSeatSource(source);
+        // 已售状态以适配器为准，不保留之前座位图中的座位对象
+        mSoldSeats.clear();
+        mSeatGrid.setSeats(source);
+        onSeatDataChanged();
+    }
+
+    private void setSeatSource(SeatSource source) {
+        if (mSeatSource == source) {
             return;
         }
+        if (mSeatSource != null) {
+            mSeatSource.unregisterObserver(mSeatSourceObserver);
+        }
+        mSeatSource = source;
+        if (source != null) {
+            source.registerObserver(mSeatSourceObserver);
+        }
+    }
 
-        SparseIntArray rowMap = new SparseIntArray();
+    /**
+     * 适配器中一段座位发生了变化，只刷新这些座位。座位的位置发生了变化时重建座位图。
+     */
+    private void onSeatSourceChanged(int start, int count) {
+        final int end = Math.min(start + count, mSeatSource.getSeatCount());
+        boolean selectedSeatSold = false;
+        for (int i = Math.max(0, start); i < end; i++) {
+            final int row = mSeatSource.getRow(i);
+            final int col = mSeatSource.getCol(i);
+            if (!mSeatGrid.isSourceSeat(row, col, i)) {
+                setSeatData(mSeatSource);
+                return;
+            }
+            mSeatGrid.updateSourceSeat(row, col);
+            selectedSeatSold |=
+                    applySoldChange(row, col, mSeatSource.getState(i) == SeatData.STATE_SOLD);
+        }
+        onSoldChangesApplied(selectedSeatSold);
+    }
 
-        mMaxRow = mMaxCol = 0;
-        final int size = Utils.size(seats);
-        for (int i = 0; i < size; i++) {
-            SeatData seat = seats.get(i);
-            mSeatData.put(seat.seatKey(), seat);
-            mMaxRow = Math.max(seat.point.x, mMaxRow);
-            mMaxCol = Math.max(seat.point.y, mMaxCol);
+    private void onSeatDataChanged() {
+        mSelectedSeats.clear();
+        cancelRecommendSeats();
+        mSeatRegular.rebuild();
+        mTileCache.clear();
+        hasDrawnViewport = false;
 
-            int rowCount = rowMap.get(seat.point.x, 0);
-            rowMap.put(seat.point.x, rowCount + 1);
+        if (isSeatEmpty()) {
+            return;
         }
 
+        mMaxRow = mSeatGrid.getMaxRow();
+        mMaxCol = mSeatGrid.getMaxCol();
+
         updateSoldSeat();
 
         int width = getWidth();
         int height = getHeight();
         initSeatScale(width, height);
 
-        if (mMaxRow > 0 && rowMap.size() > 0) {
+        if (mMaxRow > 0 && mSeatGrid.size() > 0) {
             mSeatNo = new String[mMaxRow];
             // 座位排号
             int seatNo = 1;
             for (int i = 1; i <= mMaxRow; i++) {
-                int count = rowMap.get(i, 0);
-                mSeatNo[i - 1] = count > 0 ? String.valueOf(seatNo) : "";
-                if (count > 0) {
+                boolean hasSeat = mSeatGrid.hasSeatInRow(i);
+                mSeatNo[i - 1] = hasSeat ? String.valueOf(seatNo) : "";
+                if (hasSeat) {
                     seatNo++;
                 }
             }
         }
-
-        if (mSeatThumbnailView != null) {
-            mSeatThumbnailView.setSeatData(seats);
-        }
         invalidate();
     }
 
@@ -880,15 +1390,17 @@ public class SeatView extends View {
     public void setSelectedData(List<SeatData> seatData) {
         List<SeatData> datas = new ArrayList<>(mSelectedSeats);
         for (SeatData data : datas) {
-            data.unSelectSeat();
+            unSelectSeat(data);
         }
         datas.clear();
-        datas.addAll(seatData);
-        for (SeatData data : datas) {
-            data.selectSeat();
+        for (SeatData data : seatData) {
+            SeatData seat = selectSeat(data);
+            if (seat != null) {
+                datas.add(seat);
+            }
         }
-        this.mSelectedSeats = new ArrayList<>(datas);
-        invalidate();
+        this.mSelectedSeats = datas;
+        invalidateChangedSeats();
     }
 
     private void initSeatScale(int width, int height) {
@@ -903,7 +1415,7 @@ public class SeatView extends View {
      * @return 是否无数据
      */
     public boolean isSeatEmpty() {
-        return mSeatData == null || mSeatData.size() <= 0;
+        return mSeatGrid.size() <= 0;
     }
 
     /**
@@ -912,7 +1424,14 @@ public class SeatView extends View {
      * @return 是否无已售座位
      */
     public boolean isSoldSeatEmpty() {
-        return Utils.size(mSoldSeats) <= 0;
+        for (int row = 0; row <= mSeatGrid.getMaxRow(); row++) {
+            for (int col = 0; col <= mSeatGrid.getMaxCol(); col++) {
+                if (mSeatGrid.getState(row, col) == SeatData.STATE_SOLD) {
+                    return false;
+                }
+            }
+        }
+        return true;
     }
 
     /**
@@ -946,21 +1465,101 @@ public class SeatView extends View {
     }
 
     /**
-     * 获取座位的数据。
+     * 获取座位的数据。通过适配器设置的座位会在这时创建所有座位对象，只需要座位图的大小时使用
+     * {@link #getMaxRow()}、{@link #getMaxCol()}。
      *
      * @return 座位的数据
      */
     public List<SeatData> getSeatData() {
-        return new ArrayList<>(mSeatData.values());
+        return mSeatGrid.toList();
     }
 
     /**
-     * 获取已售的座位。
+     * 获取座位图中最大的排。
+     *
+     * @return 最大的排，没有座位时返回 0
+     */
+    public int getMaxRow() {
+        return mSeatGrid.getMaxRow();
+    }
+
+    /**
+     * 获取座位图中最大的列。
+     *
+     * @return 最大的列，没有座位时返回 0
+     */
+    public int getMaxCol() {
+        return mSeatGrid.getMaxCol();
+    }
+
+    /**
+     * 设置是否启用座位层的分块缓存。启用后拖动座位图时只贴缓存的图块，不再逐个绘制座位。
+     *
+     * @param enabled 是否启用
+     */
+    public void setTileCacheEnabled(boolean enabled) {
+        if (isTileCacheEnabled != enabled) {
+            isTileCacheEnabled = enabled;
+            if (!enabled) {
+                mTileCache.clear();
+            }
+            invalidate();
+        }
+    }
+
+    /**
+     * 是否启用了座位层的分块缓存。
+     *
+     * @return 是否启用
+     */
+    public boolean isTileCacheEnabled() {
+        return isTileCacheEnabled;
+    }
+
+    /**
+     * 设置分块缓存的最大字节数，超出时淘汰最久未使用的图块。没有设置时按视图的大小缓存一屏的图块。
+     * 小于一屏的图块时不使用分块缓存，直接绘制座位。
+     *
+     * @param maxBytes 最大字节数
+     */
+    public void setTileCacheSize(int maxBytes) {
+        isTileCacheSizeSet = true;
+        mTileCache.setMaxBytes(maxBytes);
+    }
+
+    /**
+     * 获取最近一帧渲染的座位数量。使用分块缓存时只包括重新渲染到块中的座位，贴图的座位不计算在内。
+     *
+     * @return 渲染的座位数量
+     */
+    public int getDrawnSeatCount() {
+        return mDrawnSeatCount;
+    }
+
+    /**
+     * 获取最近一帧因不在可见区域内而未绘制的座位数量，与是否使用分块缓存无关。
+     *
+     * @return 未绘制的座位数量
+     */
+    public int getCulledSeatCount() {
+        return mCulledSeatCount;
+    }
+
+    /**
+     * 获取已售的座位，包括增量更新和适配器中已售的座位。
      *
      * @return 已售的座位
      */
     public List<SeatData> getSoldSeatData() {
-        return mSoldSeats;
+        List<SeatData> soldSeats = new ArrayList<>();
+        for (int row = 0; row <= mSeatGrid.getMaxRow(); row++) {
+            for (int col = 0; col <= mSeatGrid.getMaxCol(); col++) {
+                if (mSeatGrid.getState(row, col) == SeatData.STATE_SOLD) {
+                    soldSeats.add(mSeatGrid.get(row, col));
+                }
+            }
+        }
+        return soldSeats;
     }
 
     /**
@@ -969,11 +1568,11 @@ public class SeatView extends View {
     public void removeAllSelectedSeats() {
         if (!Utils.isEmpty(mSelectedSeats)) {
             for (SeatData seat : mSelectedSeats) {
-                seat.unSelectSeat();
+                unSelectSeat(seat);
             }
         }
         mSelectedSeats.clear();
-        invalidate();
+        invalidateChangedSeats();
     }
 
     /**
@@ -988,39 +1587,39 @@ public class SeatView extends View {
 
         // 情侣座
         if (seat.isLoverSeat()) {
-            seat.unSelectSeat();
+            unSelectSeat(seat);
             int graphRow = seat.point.x;
             int graphCol = seat.point.y + (seat.isLoverLeftSeat() ? 1 : -1);
 
-            SeatData other = mSeatData.get(graphRow + "-" + graphCol);
+            SeatData other = mSeatGrid.get(graphRow, graphCol);
             if (other != null && other.state == SeatData.STATE_SELECTED) {
-                other.unSelectSeat();
+                unSelectSeat(other);
                 mSelectedSeats.remove(other);
             }
             mSelectedSeats.remove(seat);
         }
         List<SeatData> selectedSeats = new ArrayList<>(mSelectedSeats);
         selectedSeats.remove(seat);
-        seat.unSelectSeat();
+        unSelectSeat(seat);
 
         checkSeatRegular(seat, false);
         mSelectedSeats.remove(seat);
-        invalidate();
+        invalidateChangedSeats();
     }
 
     /**
      * 清空座位数据。
      */
     public void clearSeatData() {
-        mSeatData.clear();
+        setSeatSource(null);
+        cancelRecommendSeats();
+        mSeatGrid.clear();
+        mSeatRegular.clear();
+        mTileCache.clear();
+        hasDrawnViewport = false;
+        mDrawnSeatCount = mVisibleSeatCount = mCulledSeatCount = 0;
         mSoldSeats.clear();
         mSelectedSeats.clear();
-        mBestSeatFinder.clear();
-
-        if (mSeatThumbnailView != null) {
-            mSeatThumbnailView.clearSeatData();
-        }
-
         invalidate();
     }
 
@@ -1031,38 +1630,192 @@ public class SeatView extends View {
      * @return 推荐的座位
      */
     public List<SeatData> selectRecommendSeats(int recommendCount) {
-        List<SeatData> seats = mBestSeatFinder.selectedRecommendSeat(recommendCount);
-        if (!Utils.isEmpty(seats)) {
-            if (!Utils.isEmpty(mSelectedSeats)) {
-                for (SeatData seat : mSelectedSeats) {
-                    seat.unSelectSeat();
-                }
+        List<SeatData> seats =
+                searchRecommendSeats(
+                        mBestSeatFinder,
+                        recommendCount,
+                        isCheckRegularWhileRecommend,
+                        isSplitRecommendEnabled);
+        applyRecommendSeats(seats);
+        return seats;
+    }
+
+    /**
+     * 在后台线程中查找推荐的座位，完成后在主线程中选中推荐的座位。查找期间座位的已售状态或已选座位发生变化、
+     * 再次推荐、或调用 {@link #cancelRecommendSeats()} 时，结果会被丢弃，不会回调。
+     *
+     * @param recommendCount 推荐座位的数量
+     * @param listener       推荐完成的回调
+     */
+    public void selectRecommendSeatsAsync(
+            final int recommendCount, final OnRecommendSeatListener listener) {
+        cancelRecommendSeats();
+
+        final int generation = mRecommendGeneration;
+        final BestSeatFinder finder = mBestSeatFinder.snapshot();
+        final boolean checkRegular = isCheckRegularWhileRecommend;
+        final boolean splitEnabled = isSplitRecommendEnabled;
+        Runnable task =
+                new Runnable() {
+
+                    @Override
+                    public void run() {
+                        final List<SeatData> seats =
+                                searchRecommendSeats(
+                                        finder, recommendCount, checkRegular, splitEnabled);
+                        mMainHandler.post(
+                                new Runnable() {
+
+                                    @Override
+                                    public void run() {
+                                        deliverRecommendSeats(generation, seats, listener);
+                                    }
+                                });
+                    }
+                };
+        mRecommendFuture = getRecommendExecutor().submit(task);
+    }
+
+    private void deliverRecommendSeats(
+            int generation, List<SeatData> seats, OnRecommendSeatListener listener) {
+        // 查找期间座位状态发生了变化，结果已过期
+        if (generation != mRecommendGeneration) {
+            return;
+        }
+
+        mRecommendFuture = null;
+        applyRecommendSeats(seats);
+        if (listener != null) {
+            listener.onRecommendSeats(seats);
+        }
+    }
+
+    /**
+     * 取消正在进行的异步推荐。
+     */
+    public void cancelRecommendSeats() {
+        mRecommendGeneration++;
+        if (mRecommendFuture != null) {
+            mRecommendFuture.cancel(false);
+            mRecommendFuture = null;
+        }
+    }
+
+    private static List<SeatData> searchRecommendSeats(
+            BestSeatFinder finder, int recommendCount, boolean checkRegular, boolean splitEnabled) {
+        // 开启推荐时校验规则的情况下，只查找符合选座规则的座位
+        List<SeatData> seats = finder.selectedRecommendSeat(recommendCount, checkRegular);
+        // 一排中没有足够的连续座位时分到前后两排
+        if (Utils.isEmpty(seats) && splitEnabled) {
+            seats = finder.selectedSplitRecommendSeat(
+                    recommendCount, checkRegular, SPLIT_RECOMMEND_TIMEOUT_NANOS);
+        }
+        return seats;
+    }
+
+    private static List<List<SeatData>> searchGroupRecommendSeats(
+            BestSeatFinder finder, int[] groupCounts, long timeoutMillis) {
+        // 多组座位全部选中后必须符合选座规则，不受 isCheckRegularWhileRecommend 影响
+        return finder.selectedGroupRecommendSeats(groupCounts, true, timeoutMillis * 1000 * 1000);
+    }
+
+    private static synchronized ExecutorService getRecommendExecutor() {
+        if (sRecommendExecutor == null) {
+            sRecommendExecutor =
+                    Executors.newSingleThreadExecutor(
+                            new ThreadFactory() {
+
+                                @Override
+                                public Thread newThread(Runnable runnable) {
+                                    Thread thread = new Thread(runnable, "SeatView-recommend");
+                                    thread.setDaemon(true);
+                                    return thread;
+                                }
+                            });
+        }
+        return sRecommendExecutor;
+    }
+
+    private void applyRecommendSeats(List<SeatData> seats) {
+        if (Utils.isEmpty(seats)) {
+            return;
+        }
+
+        if (!Utils.isEmpty(mSelectedSeats)) {
+            for (SeatData seat : mSelectedSeats) {
+                unSelectSeat(seat);
             }
-            for (SeatData seat : seats) {
-                seat.selectSeat();
+        }
+        // 后台查找的结果来自座位网格的副本，换成座位网格中的座位
+        for (int i = 0; i < seats.size(); i++) {
+            SeatData seat = selectSeat(seats.get(i));
+            if (seat != null) {
+                seats.set(i, seat);
             }
+        }
 
-            mSelectedSeats.clear();
-            mSelectedSeats.addAll(seats);
+        mSelectedSeats.clear();
+        mSelectedSeats.addAll(seats);
 
-            // 检查推荐的座位是否合法
-            if (isCheckRegularWhileRecommend && checkRecommendSeatRegular(recommendCount)) {
-                invalidate();
-                if (mChooseSeatListener != null) {
-                    mChooseSeatListener.onSelectedSeatChanged(mSelectedSeats);
-                }
-            }
+        invalidateChangedSeats();
+        if (mChooseSeatListener != null) {
+            mChooseSeatListener.onSelectedSeatChanged(mSelectedSeats);
         }
-        return seats;
     }
 
-    private boolean checkRecommendSeatRegular(int recommendCount) {
-        if (!isSelectedSeatLegal()) {
-            mBestSeatFinder.addIgnoreSeats(recommendCount, mSelectedSeats);
-            selectRecommendSeats(recommendCount);
-            return false;
+    /**
+     * 同时为多组观众推荐座位，如团体购票时的 4 组 6 人。各组座位互不重叠，全部选中后符合选座规则，
+     * 总代价最小。只查询不会选中座位。搜索会一直进行到尝试了所有的放置方式，大影厅中通常会用满时间上限，
+     * 超时后返回已找到的最优结果。
+     *
+     * @param groupCounts   每组座位的数量
+     * @param timeoutMillis 查找的时间上限，单位毫秒
+     * @return 与 groupCounts 顺序对应的推荐座位，没有合适的座位时返回空列表
+     */
+    public List<List<SeatData>> findGroupRecommendSeats(int[] groupCounts, long timeoutMillis) {
+        return searchGroupRecommendSeats(mBestSeatFinder, groupCounts, timeoutMillis);
+    }
+
+    /**
+     * 设置是否允许分排推荐座位。开启后一排中没有足够的连续座位时，把座位分到前后相邻的两排。
+     * 会取消正在进行的异步推荐。
+     *
+     * @param enabled 是否允许分排推荐
+     */
+    public void setSplitRecommendEnabled(boolean enabled) {
+        if (isSplitRecommendEnabled != enabled) {
+            isSplitRecommendEnabled = enabled;
+            cancelRecommendSeats();
         }
-        return true;
+    }
+
+    public boolean isSplitRecommendEnabled() {
+        return isSplitRecommendEnabled;
+    }
+
+    /**
+     * 设置推荐座位的评分模型。设置后推荐代价最小的座位，否则推荐离影厅中心最近的座位。
+     * 修改模型的参数后需要重新设置。会取消正在进行的异步推荐，异步推荐使用的是设置前的模型。
+     *
+     * @param model 评分模型，可以为 null
+     */
+    public void setSeatScoreModel(SeatScoreModel model) {
+        cancelRecommendSeats();
+        mBestSeatFinder.setScoreModel(model);
+    }
+
+    /**
+     * 查找代价最小的若干组推荐座位，只查询不会选中座位。开启推荐时校验规则时只返回符合选座规则的座位，
+     * 判断时视为已选座位只有该组座位。结果的顺序与推荐的顺序相同，第一组就是
+     * {@link #selectRecommendSeats(int)} 选中的座位（不包括分排推荐）。
+     *
+     * @param recommendCount 每组座位的数量
+     * @param maxResults     最多返回的组数
+     * @return 按代价从小到大排列的推荐座位
+     */
+    public List<RecommendedSeats> findRecommendSeats(int recommendCount, int maxResults) {
+        return mBestSeatFinder.findRecommendSeats(
+                recommendCount, maxResults, isCheckRegularWhileRecommend);
     }
 
     /**
@@ -1071,7 +1824,7 @@ public class SeatView extends View {
      * @return 是否符合规则
      */
     public boolean isSelectedSeatLegal() {
-        return SeatSelectRegular.isSelectedSeatLegal(mSelectedSeats, mSeatData, mMaxCol);
+        return mSeatRegular.isSelectedSeatLegal(mSelectedSeats);
     }
 
     private OnChooseSeatListener mChooseSeatListener;
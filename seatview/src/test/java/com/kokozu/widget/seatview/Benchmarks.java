@@ -0,0 +1,44 @@
+package com.kokozu.widget.seatview;
+
+import java.util.Locale;
+
+/**
+ * 单元测试中使用的简单计时工具：预热后取多次运行的最短时间，只打印结果，不作为测试是否通过的条件。
+ */
+final class Benchmarks {
+
+    private static final int WARM_UP_ROUNDS = 200;
+
+    private Benchmarks() {
+    }
+
+    /**
+     * @param rounds 计时的次数
+     * @param task   需要计时的操作
+     * @return 最短的一次耗时，单位纳秒
+     */
+    static long bestNanos(int rounds, Runnable task) {
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            task.run();
+        }
+
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            task.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    static void report(String name, long baselineNanos, long nanos) {
+        System.out.println(
+                String.format(
+                        Locale.US,
+                        "%-36s baseline %9.1f us, current %9.1f us, x%.1f",
+                        name,
+                        baselineNanos / 1000f,
+                        nanos / 1000f,
+                        (float) baselineNanos / Math.max(1, nanos)));
+    }
+}
@@ -0,0 +1,309 @@
+package com.kokozu.widget.seatview;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 在不同售出比例的影厅中，比较按位图查找推荐座位与原来逐个座位检查的实现，
+ * 验证推荐结果相同并打印两者的耗时。
+ */
+public class BestSeatFinderBenchmarkTest {
+
+    private static final int MAX_ROW = 40;
+    private static final int MAX_COL = 50;
+    private static final int MAX_RECOMMEND_COUNT = 6;
+    private static final int ROUNDS = 50;
+
+    private static final float[] OCCUPANCIES = {0.2f, 0.5f, 0.8f, 0.95f};
+
+    @Test
+    public void selectedRecommendSeat_matchesBaseline() {
+        for (float occupancy : OCCUPANCIES) {
+            HallSource source = newHall(new Random(2017), occupancy);
+            final SeatGrid grid = new SeatGrid();
+            final BestSeatFinder finder = new BestSeatFinder(grid);
+            grid.setSeats(source);
+            final BaselineFinder baseline = new BaselineFinder(source);
+
+            for (int count = 1; count <= MAX_RECOMMEND_COUNT; count++) {
+                List<SeatData> seats = finder.selectedRecommendSeat(count, false);
+                List<String> positions = new ArrayList<>(seats.size());
+                for (SeatData seat : seats) {
+                    positions.add(seat.seatNo);
+                }
+                assertEquals(
+                        "occupancy " + occupancy + ", count " + count,
+                        baseline.selectedRecommendSeat(count),
+                        positions);
+            }
+
+            long baselineNanos =
+                    Benchmarks.bestNanos(
+                            ROUNDS,
+                            new Runnable() {
+
+                                @Override
+                                public void run() {
+                                    for (int count = 1; count <= MAX_RECOMMEND_COUNT; count++) {
+                                        baseline.selectedRecommendSeat(count);
+                                    }
+                                }
+                            });
+            long nanos =
+                    Benchmarks.bestNanos(
+                            ROUNDS,
+                            new Runnable() {
+
+                                @Override
+                                public void run() {
+                                    for (int count = 1; count <= MAX_RECOMMEND_COUNT; count++) {
+                                        finder.selectedRecommendSeat(count, false);
+                                    }
+                                }
+                            });
+            Benchmarks.report(
+                    "recommend 1-" + MAX_RECOMMEND_COUNT + ", " + (int) (occupancy * 100) + "% sold",
+                    baselineNanos,
+                    nanos);
+        }
+    }
+
+    /**
+     * 生成 MAX_ROW 排、MAX_COL 列的影厅，每排中间有过道、两侧各有两对情侣座，按比例随机售出。
+     */
+    private static HallSource newHall(Random random, float occupancy) {
+        HallSource source = new HallSource();
+        for (int row = 1; row <= MAX_ROW; row++) {
+            for (int col = 1; col <= MAX_COL; col++) {
+                if (col == MAX_COL / 2) {
+                    continue;
+                }
+                int type;
+                if (col <= 4 || col > MAX_COL - 4) {
+                    type = col % 2 == 1 ? SeatData.TYPE_LOVER_LEFT : SeatData.TYPE_LOVER_RIGHT;
+                } else {
+                    type = SeatData.TYPE_NORMAL;
+                }
+                int state = random.nextFloat() < occupancy
+                        ? SeatData.STATE_SOLD
+                        : SeatData.STATE_NORMAL;
+                source.add(row, col, state, type);
+            }
+        }
+        return source;
+    }
+
+    /**
+     * 座位编号为 "排-列" 的适配器，比较结果时不需要读取座位的 Point。
+     */
+    private static class HallSource extends SeatSource {
+
+        private final List<int[]> mSeats = new ArrayList<>();
+
+        void add(int row, int col, int state, int type) {
+            mSeats.add(new int[] {row, col, state, type});
+        }
+
+        @Override
+        public int getSeatCount() {
+            return mSeats.size();
+        }
+
+        @Override
+        public int getRow(int index) {
+            return mSeats.get(index)[0];
+        }
+
+        @Override
+        public int getCol(int index) {
+            return mSeats.get(index)[1];
+        }
+
+        @Override
+        public int getState(int index) {
+            return mSeats.get(index)[2];
+        }
+
+        @Override
+        public int getType(int index) {
+            return mSeats.get(index)[3];
+        }
+
+        @Override
+        public String getSeatRow(int index) {
+            return null;
+        }
+
+        @Override
+        public String getSeatCol(int index) {
+            return null;
+        }
+
+        @Override
+        public String getSeatNo(int index) {
+            return getRow(index) + "-" + getCol(index);
+        }
+
+        @Override
+        public String getPieceNo(int index) {
+            return null;
+        }
+    }
+
+    /**
+     * 原来的实现：所有位置按离中心的距离排序，依次为每个位置创建座位列表并逐个检查。
+     * 座位对象改为 {row, col, state, type} 数组，并忽略超出最大列的座位，其余保持不变。
+     */
+    private static class BaselineFinder {
+
+        private final int mMaxRow, mMaxCol;
+        private final int[][][] mSeatArray;
+        private final List<int[]> mPoints = new ArrayList<>();
+
+        BaselineFinder(HallSource source) {
+            int maxRow = 0;
+            int maxCol = 0;
+            for (int i = 0; i < source.getSeatCount(); i++) {
+                maxRow = Math.max(maxRow, source.getRow(i));
+                maxCol = Math.max(maxCol, source.getCol(i));
+            }
+            mMaxRow = maxRow;
+            mMaxCol = maxCol;
+
+            mSeatArray = new int[maxRow + 1][maxCol + 1][];
+            for (int[] seat : source.mSeats) {
+                mSeatArray[seat[0]][seat[1]] = seat;
+            }
+            // {x: 列, y: 排}
+            for (int row = 0; row < mSeatArray.length; row++) {
+                for (int col = 0; col < mSeatArray[row].length; col++) {
+                    mPoints.add(new int[] {col, row});
+                }
+            }
+            int centerX = (maxCol / 2) + (maxCol % 2);
+            int centerY = mMaxRow / 2 + (mMaxRow % 2);
+            Collections.sort(mPoints, new PointComparator(centerX, centerY));
+        }
+
+        /**
+         * @return 推荐座位的 "排-列"
+         */
+        List<String> selectedRecommendSeat(int recommendCount) {
+            List<int[]> bestSeat = new ArrayList<>();
+            for (int i = 0; i < mPoints.size(); i++) {
+                int[] point = mPoints.get(i);
+                int[] seat = mSeatArray[point[1]][point[0]];
+                if (seat == null || seat[2] == SeatData.STATE_SOLD) {
+                    continue;
+                }
+
+                int col = point[0];
+                if (recommendCount > 1) {
+                    col -= recommendCount / 2;
+                    if (mMaxCol % 2 == 0) {
+                        col += 1;
+                    }
+                    if (col < 0) {
+                        col = 0;
+                    }
+                }
+                for (int j = 0; j < recommendCount; j++) {
+                    int[] isGood = col + j <= mMaxCol ? mSeatArray[point[1]][col + j] : null;
+                    if (isGood != null) {
+                        bestSeat.add(isGood);
+                    }
+                }
+                if (checkSeatChooseAvailable(recommendCount, bestSeat)) {
+                    break;
+                } else {
+                    bestSeat.clear();
+                }
+            }
+
+            List<String> positions = new ArrayList<>(bestSeat.size());
+            for (int[] seat : bestSeat) {
+                positions.add(seat[0] + "-" + seat[1]);
+            }
+            return positions;
+        }
+
+        private static boolean checkSeatChooseAvailable(
+                int recommendCount, List<int[]> selectedSeat) {
+            if (selectedSeat.size() != recommendCount) {
+                return false;
+            }
+
+            boolean available = true;
+            boolean hasLover = false;
+            for (int[] seat : selectedSeat) {
+                if (seat[3] != SeatData.TYPE_NORMAL) {
+                    hasLover = true;
+                }
+                if (seat[2] == SeatData.STATE_SOLD) {
+                    available = false;
+                    break;
+                }
+            }
+            // 情侣座的情况
+            if (hasLover) {
+                if (recommendCount % 2 != 0) {
+                    available = false;
+                } else if (selectedSeat.get(0)[3] != SeatData.TYPE_LOVER_LEFT) {
+                    available = false;
+                }
+            }
+            return available;
+        }
+
+        private static class PointComparator implements Comparator<int[]> {
+
+            private final int mX, mY;
+
+            PointComparator(int x, int y) {
+                this.mX = x;
+                this.mY = y;
+            }
+
+            @Override
+            public int compare(int[] lhs, int[] rhs) {
+                int lx = Math.abs(mX - lhs[0]);
+                int ly = Math.abs(mY - lhs[1]);
+                int rx = Math.abs(mX - rhs[0]);
+                int ry = Math.abs(mY - rhs[1]);
+
+                // 点之间的距离排序
+                int result = Double.compare(sqrt(lx, ly), sqrt(rx, ry));
+                if (result == 0) {
+                    int dX = lx - rx;
+                    int dY = ly - ry;
+                    // 距离小的排前面
+                    if (dX < dY) {
+                        return -1;
+                    } else {
+                        if (dX == 0) {
+                            result = -Double.compare(lhs[1], rhs[1]);
+                            if (result != 0) {
+                                return result;
+                            }
+                        }
+                        if (dY == 0) {
+                            result = -Double.compare(lhs[0], rhs[0]);
+                        }
+                    }
+                }
+                return result;
+            }
+
+            private static double sqrt(int x, int y) {
+                return Math.sqrt(x * x + y * y);
+            }
+        }
+    }
+}
@@ -0,0 +1,628 @@
+package com.kokozu.widget.seatview;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 在随机的小影厅中，用枚举所有座位组合的结果验证 {@link BestSeatFinder} 的推荐。
+ */
+public class BestSeatFinderTest {
+
+    private static final int ROUNDS = 200;
+    private static final int MAX_RESULTS = 5;
+
+    /**
+     * 整数代价，累加时没有误差，代价相同时按位置排序
+     */
+    private static final SeatScoreModel MODEL =
+            new SeatScoreModel() {
+
+                @Override
+                public float getSeatCost(int row, int col, int type, int maxRow, int maxCol) {
+                    return Math.abs(2 * col - maxCol)
+                            + 2 * Math.abs(row - maxRow / 2)
+                            + (type == SeatData.TYPE_NORMAL ? 0 : 1);
+                }
+            };
+
+    @Test
+    public void findRecommendSeats_withoutModel_followsSelectionOrder() {
+        Random random = new Random(20170420);
+        for (int round = 0; round < ROUNDS; round++) {
+            TestHall hall = TestHall.random(random, 12, 16, 0.5f);
+            SeatGrid grid = new SeatGrid();
+            BestSeatFinder finder = new BestSeatFinder(grid);
+            grid.setSeats(hall);
+
+            for (int count = 1; count <= 4; count++) {
+                for (int check = 0; check < 2; check++) {
+                    boolean checkRegular = check == 1;
+                    String message = "round " + round + ", count " + count + ", " + checkRegular;
+                    List<Block> expected = rankBlocks(hall, count, checkRegular);
+                    assertFound(message, hall, grid, finder, count, checkRegular, expected);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void findRecommendSeats_withModel_matchesBruteForce() {
+        Random random = new Random(2017);
+        for (int round = 0; round < ROUNDS; round++) {
+            TestHall hall = TestHall.random(random, 12, 16, 0.5f);
+            SeatGrid grid = new SeatGrid();
+            BestSeatFinder finder = new BestSeatFinder(grid);
+            grid.setSeats(hall);
+            finder.setScoreModel(MODEL);
+
+            for (int count = 1; count <= 4; count++) {
+                for (int check = 0; check < 2; check++) {
+                    boolean checkRegular = check == 1;
+                    List<Block> expected = new ArrayList<>();
+                    for (Block block : enumerateBlocks(hall, count, checkRegular)) {
+                        block.score = (float) (getBlockCost(hall, MODEL, block.row, block.col, count)
+                                / count);
+                        expected.add(block);
+                    }
+                    Collections.sort(expected, BLOCK_ORDER);
+
+                    String message = "round " + round + ", count " + count + ", " + checkRegular;
+                    assertFound(message, hall, grid, finder, count, checkRegular, expected);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void selectedSplitRecommendSeat_matchesBruteForce() {
+        Random random = new Random(20261017);
+        for (int round = 0; round < ROUNDS; round++) {
+            // 售出的比例较高，一排中经常没有足够的连续座位
+            TestHall hall = TestHall.random(random, 6, 10, 0.6f);
+            SeatGrid grid = new SeatGrid();
+            BestSeatFinder finder = new BestSeatFinder(grid);
+            grid.setSeats(hall);
+            SeatScoreModel model = round % 2 == 0 ? null : MODEL;
+            finder.setScoreModel(model);
+
+            for (int count = 2; count <= 6; count++) {
+                for (int check = 0; check < 2; check++) {
+                    boolean checkRegular = check == 1;
+                    String message = "round " + round + ", count " + count + ", " + checkRegular;
+                    double expected = getMinSplitCost(hall, model, count, checkRegular);
+                    List<SeatData> seats =
+                            finder.selectedSplitRecommendSeat(count, checkRegular, Long.MAX_VALUE);
+                    assertStatesUnchanged(message, hall, grid);
+                    if (expected == Double.MAX_VALUE) {
+                        assertTrue(message, seats.isEmpty());
+                    } else {
+                        assertEquals(
+                                message,
+                                expected,
+                                getSplitCost(message, hall, model, seats, count, checkRegular),
+                                0);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void selectedSplitRecommendSeat_timeout_returnsLegalSplit() {
+        final long[] timeouts = {0, 1000, 10 * 1000, 30 * 1000, 100 * 1000, 300 * 1000};
+        Random random = new Random(7);
+        for (int round = 0; round < 20; round++) {
+            TestHall hall = TestHall.random(random, 40, 60, 0.6f);
+            SeatGrid grid = new SeatGrid();
+            BestSeatFinder finder = new BestSeatFinder(grid);
+            grid.setSeats(hall);
+
+            // 超时后返回的是已找到的结果，可能不是最优的，但一定合法
+            double minCost = getMinSplitCost(hall, null, 8, true);
+            for (long timeoutNanos : timeouts) {
+                String message = "round " + round + ", timeout " + timeoutNanos;
+                List<SeatData> seats = finder.selectedSplitRecommendSeat(8, true, timeoutNanos);
+                if (!seats.isEmpty()) {
+                    double cost = getSplitCost(message, hall, null, seats, 8, true);
+                    assertTrue(message, cost >= minCost);
+                }
+            }
+
+            List<SeatData> seats = finder.selectedSplitRecommendSeat(8, true, Long.MAX_VALUE);
+            if (minCost == Double.MAX_VALUE) {
+                assertTrue(seats.isEmpty());
+            } else {
+                assertEquals(
+                        "round " + round,
+                        minCost,
+                        getSplitCost("round " + round, hall, null, seats, 8, true),
+                        0);
+            }
+        }
+    }
+
+    @Test
+    public void selectedGroupRecommendSeats_matchesBruteForce() {
+        final int[][] groupCounts = {{2, 2}, {3, 2}, {2, 2, 2}, {4, 1, 1}, {3, 3}};
+        Random random = new Random(1024);
+        int foundCount = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            TestHall hall = TestHall.random(random, 4, 8, round % 2 == 0 ? 0.3f : 0.5f);
+            SeatGrid grid = new SeatGrid();
+            BestSeatFinder finder = new BestSeatFinder(grid);
+            grid.setSeats(hall);
+            SeatScoreModel model = round % 3 == 0 ? null : MODEL;
+            finder.setScoreModel(model);
+
+            for (int[] counts : groupCounts) {
+                for (int check = 0; check < 2; check++) {
+                    boolean checkRegular = check == 1;
+                    String message = "round " + round + ", groups " + Arrays.toString(counts)
+                            + ", " + checkRegular;
+                    GroupBruteForce bruteForce =
+                            new GroupBruteForce(hall, model, counts, checkRegular);
+                    bruteForce.search(0, 0);
+
+                    List<List<SeatData>> groups =
+                            finder.selectedGroupRecommendSeats(counts, checkRegular, Long.MAX_VALUE);
+                    assertStatesUnchanged(message, hall, grid);
+                    if (bruteForce.minCost == Double.MAX_VALUE) {
+                        assertTrue(message, groups.isEmpty());
+                    } else {
+                        foundCount++;
+                        assertEquals(
+                                message,
+                                bruteForce.minCost,
+                                getGroupCost(message, hall, model, groups, counts, checkRegular),
+                                0);
+                    }
+                }
+            }
+        }
+        assertTrue(foundCount > ROUNDS);
+    }
+
+    @Test
+    public void selectedGroupRecommendSeats_timeout_returnsLegalGroups() {
+        // 8 组 2 人在 20 排 30 列的影厅中无法在时间上限内尝试所有的放置方式
+        final long[] timeouts = {0, 1000 * 1000, 5 * 1000 * 1000};
+        final int[] counts = {2, 2, 2, 2, 2, 2, 2, 2};
+        Random random = new Random(4);
+        int foundCount = 0;
+        for (int round = 0; round < 5; round++) {
+            TestHall hall = TestHall.random(random, 20, 30, 0.4f);
+            SeatGrid grid = new SeatGrid();
+            BestSeatFinder finder = new BestSeatFinder(grid);
+            grid.setSeats(hall);
+
+            for (long timeoutNanos : timeouts) {
+                String message = "round " + round + ", timeout " + timeoutNanos;
+                long start = System.nanoTime();
+                List<List<SeatData>> groups =
+                        finder.selectedGroupRecommendSeats(counts, true, timeoutNanos);
+                long elapsed = System.nanoTime() - start;
+                assertTrue(message + ", elapsed " + elapsed,
+                        elapsed < timeoutNanos + 500 * 1000 * 1000);
+                assertStatesUnchanged(message, hall, grid);
+                if (!groups.isEmpty()) {
+                    foundCount++;
+                    getGroupCost(message, hall, null, groups, counts, true);
+                }
+            }
+        }
+        // 第一轮搜索很快就能找到结果，超时后返回已找到的结果
+        assertTrue(foundCount > 0);
+    }
+
+    /**
+     * 比较前 MAX_RESULTS 组的位置和代价，第一组与 selectedRecommendSeat 相同，且查询不改变座位的状态。
+     */
+    private static void assertFound(
+            String message,
+            TestHall hall,
+            SeatGrid grid,
+            BestSeatFinder finder,
+            int count,
+            boolean checkRegular,
+            List<Block> expected) {
+        List<RecommendedSeats> results = finder.findRecommendSeats(count, MAX_RESULTS, checkRegular);
+        assertStatesUnchanged(message, hall, grid);
+        assertEquals(message, Math.min(MAX_RESULTS, expected.size()), results.size());
+        for (int i = 0; i < results.size(); i++) {
+            Block block = expected.get(i);
+            assertEquals(message, block.positions(count), positions(results.get(i).seats));
+            assertEquals(message, block.score, results.get(i).score, 0);
+        }
+
+        List<String> selected = positions(finder.selectedRecommendSeat(count, checkRegular));
+        assertEquals(
+                message,
+                results.isEmpty() ? new ArrayList<String>() : positions(results.get(0).seats),
+                selected);
+        assertStatesUnchanged(message, hall, grid);
+    }
+
+    private static void assertStatesUnchanged(String message, TestHall hall, SeatGrid grid) {
+        for (int row = 0; row <= hall.getMaxRow(); row++) {
+            for (int col = 0; col <= hall.getMaxCol(); col++) {
+                assertEquals(message, hall.states[row][col], grid.getState(row, col));
+            }
+        }
+    }
+
+    /**
+     * 按离中心由近到远的顺序检查每个位置，位置所在的一组座位第一次被检查到时的序号为它的代价。
+     */
+    private static List<Block> rankBlocks(TestHall hall, int count, boolean checkRegular) {
+        final int maxRow = hall.getMaxRow();
+        final int maxCol = hall.getMaxCol();
+        final int centerX = maxCol / 2 + maxCol % 2;
+        final int centerY = maxRow / 2 + maxRow % 2;
+        List<int[]> points = new ArrayList<>();
+        for (int row = 0; row <= maxRow; row++) {
+            for (int col = 0; col <= maxCol; col++) {
+                points.add(new int[] {row, col});
+            }
+        }
+        // 距离相同时依次按横向距离小、排大、列大排在前面
+        Collections.sort(
+                points,
+                new Comparator<int[]>() {
+
+                    @Override
+                    public int compare(int[] lhs, int[] rhs) {
+                        int ldx = Math.abs(centerX - lhs[1]);
+                        int ldy = Math.abs(centerY - lhs[0]);
+                        int rdx = Math.abs(centerX - rhs[1]);
+                        int rdy = Math.abs(centerY - rhs[0]);
+                        int result = compareInt(ldx * ldx + ldy * ldy, rdx * rdx + rdy * rdy);
+                        if (result == 0) {
+                            result = compareInt(ldx, rdx);
+                        }
+                        if (result == 0) {
+                            result = compareInt(rhs[0], lhs[0]);
+                        }
+                        if (result == 0) {
+                            result = compareInt(rhs[1], lhs[1]);
+                        }
+                        return result;
+                    }
+                });
+
+        // 原来的实现中检查的位置在一组座位中的偏移
+        int offset = 0;
+        if (count > 1) {
+            offset = count / 2 - (maxCol % 2 == 0 ? 1 : 0);
+        }
+        List<Block> legalBlocks = enumerateBlocks(hall, count, checkRegular);
+        List<Block> ranked = new ArrayList<>();
+        for (int i = 0; i < points.size(); i++) {
+            int row = points.get(i)[0];
+            int col = Math.max(0, points.get(i)[1] - offset);
+            for (Block block : legalBlocks) {
+                if (block.row == row && block.col == col && block.score < 0) {
+                    block.score = i;
+                    ranked.add(block);
+                }
+            }
+        }
+        assertEquals("every legal block is reachable", legalBlocks.size(), ranked.size());
+        return ranked;
+    }
+
+    /**
+     * 枚举所有可推荐的 count 个连续座位：都有座位且未售，有情侣座时数量为偶数且第一个座位是情侣座的左边，
+     * 校验规则时选中这些座位后该排符合原来的选座规则。
+     */
+    static List<Block> enumerateBlocks(TestHall hall, int count, boolean checkRegular) {
+        List<Block> blocks = new ArrayList<>();
+        for (int row = 0; row <= hall.getMaxRow(); row++) {
+            for (int col = 0; col + count - 1 <= hall.getMaxCol(); col++) {
+                if (isBlockLegal(hall, row, col, count, checkRegular)) {
+                    blocks.add(new Block(row, col));
+                }
+            }
+        }
+        return blocks;
+    }
+
+    static boolean isBlockLegal(
+            TestHall hall, int row, int col, int count, boolean checkRegular) {
+        boolean hasLover = false;
+        for (int j = col; j < col + count; j++) {
+            if (hall.states[row][j] != SeatData.STATE_NORMAL) {
+                return false;
+            }
+            hasLover |= hall.getType(row, j) != SeatData.TYPE_NORMAL;
+        }
+        if (hasLover
+                && (count % 2 != 0 || hall.getType(row, col) != SeatData.TYPE_LOVER_LEFT)) {
+            return false;
+        }
+        if (!checkRegular) {
+            return true;
+        }
+
+        int[][] states = hall.states;
+        for (int j = col; j < col + count; j++) {
+            states[row][j] = SeatData.STATE_SELECTED;
+        }
+        boolean legal = TestHall.checkSeatRowAvailable(states, row, hall.getMaxCol());
+        for (int j = col; j < col + count; j++) {
+            states[row][j] = SeatData.STATE_NORMAL;
+        }
+        return legal;
+    }
+
+    /**
+     * 枚举所有分到前后相邻两排的方式，两组座位中心的横向偏移与 BestSeatFinder 的限制相同。
+     *
+     * @return 最小的代价，没有合适的座位时为 Double.MAX_VALUE
+     */
+    private static double getMinSplitCost(
+            TestHall hall, SeatScoreModel model, int count, boolean checkRegular) {
+        double minCost = Double.MAX_VALUE;
+        for (int frontCount = 1; frontCount < count; frontCount++) {
+            int backCount = count - frontCount;
+            int shift = (frontCount - backCount) / 2;
+            for (int row = 0; row < hall.getMaxRow(); row++) {
+                for (int frontCol = 0; frontCol + frontCount - 1 <= hall.getMaxCol(); frontCol++) {
+                    if (!isBlockLegal(hall, row, frontCol, frontCount, checkRegular)) {
+                        continue;
+                    }
+                    int from = frontCol + shift - BestSeatFinder.MAX_SPLIT_OFFSET;
+                    int to = frontCol + shift + BestSeatFinder.MAX_SPLIT_OFFSET;
+                    for (int backCol = Math.max(0, from); backCol <= to; backCol++) {
+                        if (backCol + backCount - 1 > hall.getMaxCol()
+                                || !isBlockLegal(hall, row + 1, backCol, backCount, checkRegular)) {
+                            continue;
+                        }
+                        minCost = Math.min(
+                                minCost,
+                                getSplitCost(
+                                        hall, model, row, frontCol, frontCount, backCol, backCount));
+                    }
+                }
+            }
+        }
+        return minCost;
+    }
+
+    /**
+     * 检查分排推荐的结果：前一排、后一排各是一组合法的连续座位，返回它的代价。
+     */
+    private static double getSplitCost(
+            String message,
+            TestHall hall,
+            SeatScoreModel model,
+            List<SeatData> seats,
+            int count,
+            boolean checkRegular) {
+        assertEquals(message, count, seats.size());
+        int[] first = parsePosition(seats.get(0));
+        int row = first[0];
+        int frontCount = 1;
+        while (frontCount < count && parsePosition(seats.get(frontCount))[0] == row) {
+            frontCount++;
+        }
+        int backCount = count - frontCount;
+        assertTrue(message, backCount > 0);
+        int[] back = parsePosition(seats.get(frontCount));
+        assertEquals(message, row + 1, back[0]);
+        for (int j = 0; j < count; j++) {
+            int[] position = parsePosition(seats.get(j));
+            boolean isFront = j < frontCount;
+            assertEquals(message, isFront ? row : row + 1, position[0]);
+            assertEquals(message, isFront ? first[1] + j : back[1] + j - frontCount, position[1]);
+        }
+        assertTrue(message, isBlockLegal(hall, row, first[1], frontCount, checkRegular));
+        assertTrue(message, isBlockLegal(hall, row + 1, back[1], backCount, checkRegular));
+        return getSplitCost(hall, model, row, first[1], frontCount, back[1], backCount);
+    }
+
+    private static double getSplitCost(
+            TestHall hall,
+            SeatScoreModel model,
+            int row,
+            int frontCol,
+            int frontCount,
+            int backCol,
+            int backCount) {
+        float offset = (frontCol + (frontCount - 1) / 2f) - (backCol + (backCount - 1) / 2f);
+        return getBlockCost(hall, model, row, frontCol, frontCount)
+                + getBlockCost(hall, model, row + 1, backCol, backCount)
+                + BestSeatFinder.SPLIT_OFFSET_WEIGHT * offset * offset;
+    }
+
+    /**
+     * 检查多组推荐的结果：每组是一排中的连续座位，可以推荐且互不重叠，全部选中后符合原来的选座规则，
+     * 返回总代价。
+     */
+    private static double getGroupCost(
+            String message,
+            TestHall hall,
+            SeatScoreModel model,
+            List<List<SeatData>> groups,
+            int[] counts,
+            boolean checkRegular) {
+        assertEquals(message, counts.length, groups.size());
+        int[][] states = hall.states;
+        List<int[]> taken = new ArrayList<>();
+        double cost = 0;
+        try {
+            for (int g = 0; g < counts.length; g++) {
+                List<SeatData> seats = groups.get(g);
+                assertEquals(message, counts[g], seats.size());
+                int[] first = parsePosition(seats.get(0));
+                for (int j = 0; j < counts[g]; j++) {
+                    int[] position = parsePosition(seats.get(j));
+                    assertEquals(message, first[0], position[0]);
+                    assertEquals(message, first[1] + j, position[1]);
+                }
+                assertTrue(message, isBlockLegal(hall, first[0], first[1], counts[g], false));
+                for (int j = 0; j < counts[g]; j++) {
+                    states[first[0]][first[1] + j] = SeatData.STATE_SELECTED;
+                    taken.add(new int[] {first[0], first[1] + j});
+                }
+                cost += getBlockCost(hall, model, first[0], first[1], counts[g]);
+            }
+            if (checkRegular) {
+                for (int[] position : taken) {
+                    assertTrue(
+                            message,
+                            TestHall.checkSeatRowAvailable(states, position[0], hall.getMaxCol()));
+                }
+            }
+        } finally {
+            for (int[] position : taken) {
+                states[position[0]][position[1]] = SeatData.STATE_NORMAL;
+            }
+        }
+        return cost;
+    }
+
+    /**
+     * 枚举每组座位所有的放置方式，得到总代价最小的合法放置方式。
+     */
+    private static class GroupBruteForce {
+
+        private final TestHall mHall;
+        private final SeatScoreModel mModel;
+        private final int[] mCounts;
+        private final boolean isCheckRegular;
+
+        double minCost = Double.MAX_VALUE;
+
+        GroupBruteForce(TestHall hall, SeatScoreModel model, int[] counts, boolean checkRegular) {
+            mHall = hall;
+            mModel = model;
+            mCounts = counts;
+            isCheckRegular = checkRegular;
+        }
+
+        void search(int group, double cost) {
+            final int[][] states = mHall.states;
+            if (group == mCounts.length) {
+                if (isCheckRegular) {
+                    for (int row = 0; row <= mHall.getMaxRow(); row++) {
+                        if (!TestHall.checkSeatRowAvailable(states, row, mHall.getMaxCol())) {
+                            return;
+                        }
+                    }
+                }
+                minCost = Math.min(minCost, cost);
+                return;
+            }
+
+            final int count = mCounts[group];
+            for (int row = 0; row <= mHall.getMaxRow(); row++) {
+                for (int col = 0; col + count - 1 <= mHall.getMaxCol(); col++) {
+                    // 已选的座位不是可选状态，不会重叠
+                    if (!isBlockLegal(mHall, row, col, count, false)) {
+                        continue;
+                    }
+                    for (int j = col; j < col + count; j++) {
+                        states[row][j] = SeatData.STATE_SELECTED;
+                    }
+                    search(group + 1, cost + getBlockCost(mHall, mModel, row, col, count));
+                    for (int j = col; j < col + count; j++) {
+                        states[row][j] = SeatData.STATE_NORMAL;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 没有评分模型时座位的代价为到影厅中心距离的平方。
+     */
+    private static double getBlockCost(
+            TestHall hall, SeatScoreModel model, int row, int col, int count) {
+        final int maxRow = hall.getMaxRow();
+        final int maxCol = hall.getMaxCol();
+        double cost = 0;
+        for (int j = col; j < col + count; j++) {
+            if (model != null) {
+                cost += model.getSeatCost(row, j, hall.getType(row, j), maxRow, maxCol);
+            } else {
+                int dx = j - (maxCol / 2 + maxCol % 2);
+                int dy = row - (maxRow / 2 + maxRow % 2);
+                cost += dx * dx + dy * dy;
+            }
+        }
+        return cost;
+    }
+
+    /**
+     * @return {row, col}
+     */
+    private static int[] parsePosition(SeatData seat) {
+        int separator = seat.seatNo.indexOf('-');
+        return new int[] {
+                Integer.parseInt(seat.seatNo.substring(0, separator)),
+                Integer.parseInt(seat.seatNo.substring(separator + 1))
+        };
+    }
+
+    static List<String> positions(List<SeatData> seats) {
+        List<String> positions = new ArrayList<>(seats.size());
+        for (SeatData seat : seats) {
+            positions.add(seat.seatNo);
+        }
+        return positions;
+    }
+
+    private static int compareInt(int lhs, int rhs) {
+        return lhs < rhs ? -1 : (lhs == rhs ? 0 : 1);
+    }
+
+    /**
+     * 代价从小到大，相同时排、列小的在前面。
+     */
+    private static final Comparator<Block> BLOCK_ORDER =
+            new Comparator<Block>() {
+
+                @Override
+                public int compare(Block lhs, Block rhs) {
+                    int result = Float.compare(lhs.score, rhs.score);
+                    if (result == 0) {
+                        result = compareInt(lhs.row, rhs.row);
+                    }
+                    if (result == 0) {
+                        result = compareInt(lhs.col, rhs.col);
+                    }
+                    return result;
+                }
+            };
+
+    /**
+     * 一排中从 col 开始的连续座位。
+     */
+    static class Block {
+
+        final int row, col;
+        float score = -1;
+
+        Block(int row, int col) {
+            this.row = row;
+            this.col = col;
+        }
+
+        List<String> positions(int count) {
+            List<String> positions = new ArrayList<>(count);
+            for (int j = 0; j < count; j++) {
+                positions.add(TestHall.position(row, col + j));
+            }
+            return positions;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.kokozu.widget.seatview;
+
+import android.graphics.Point;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 测量 SeatView、SeatThumbnailView 和推荐座位各保存一份座位数据，与共用一个 {@link SeatGrid} 时
+ * 额外占用的堆内存。座位列表和已售座位列表由应用持有，两种方式都不计入。
+ * 结果取决于 JVM 的对象布局，只在当前 JVM 上有效，ART 上的数值需要在设备上测量。
+ */
+public class SeatGridMemoryTest {
+
+    private static final int ROW_COUNT = 40;
+    private static final int COL_COUNT = 50;
+
+    @Test
+    public void sharedGrid_retainsLessHeapThanCopies() {
+        List<SeatData> seats = newSeatList();
+        List<SeatData> soldSeats = newSoldList();
+
+        long before = SeatTableMemoryTest.usedMemory();
+        CopiedLayout copied = new CopiedLayout(seats, soldSeats);
+        long copiedBytes = SeatTableMemoryTest.usedMemory() - before;
+        assertEquals(seats.size(), copied.mSeatData.size());
+        copied = null;
+
+        before = SeatTableMemoryTest.usedMemory();
+        SharedLayout shared = new SharedLayout(seats, soldSeats);
+        long sharedBytes = SeatTableMemoryTest.usedMemory() - before;
+
+        System.out.println(
+                String.format(
+                        Locale.US,
+                        "%d seats: copies %d KB, shared grid %d KB, %.0f%%",
+                        shared.grid.size(),
+                        copiedBytes / 1024,
+                        sharedBytes / 1024,
+                        sharedBytes * 100f / copiedBytes));
+        assertTrue(sharedBytes < copiedBytes);
+    }
+
+    private static List<SeatData> newSeatList() {
+        List<SeatData> seats = new ArrayList<>(ROW_COUNT * COL_COUNT);
+        for (int row = 1; row <= ROW_COUNT; row++) {
+            for (int col = 1; col <= COL_COUNT; col++) {
+                SeatData seat = newSeat(row, col);
+                seat.seatRow = String.valueOf(row);
+                seat.seatCol = String.valueOf(col);
+                seat.seatNo = "1024_5_" + row + "_" + col;
+                seat.pieceNo = new String("1");
+                seats.add(seat);
+            }
+        }
+        return seats;
+    }
+
+    /**
+     * 约三分之一的座位已售，已售座位是接口返回的新对象。
+     */
+    private static List<SeatData> newSoldList() {
+        List<SeatData> soldSeats = new ArrayList<>();
+        for (int row = 1; row <= ROW_COUNT; row++) {
+            for (int col = 1; col <= COL_COUNT; col++) {
+                if ((row * 7 + col) % 3 == 0) {
+                    SeatData seat = newSeat(row, col);
+                    seat.state = SeatData.STATE_SOLD;
+                    soldSeats.add(seat);
+                }
+            }
+        }
+        return soldSeats;
+    }
+
+    private static SeatData newSeat(int row, int col) {
+        SeatData seat = new SeatData();
+        // 单元测试中 Point 的构造方法不会赋值
+        seat.point = new Point();
+        seat.point.x = row;
+        seat.point.y = col;
+        return seat;
+    }
+
+    /**
+     * 原来的实现中 SeatView、SeatThumbnailView 和 BestSeatFinder 各自保存的座位数据。
+     */
+    private static class CopiedLayout {
+
+        /*
+         * SeatView
+         */
+        final Map<String, SeatData> mSeatData = new HashMap<>(50);
+        final List<SeatData> mSelectedSeats = new ArrayList<>(6);
+        final List<SeatData> mSoldSeats = new ArrayList<>(50);
+
+        /*
+         * SeatThumbnailView
+         */
+        final Map<String, SeatData> mThumbnailSeatData = new HashMap<>();
+        final List<SeatData> mThumbnailSelectedSeats = new ArrayList<>(6);
+        final List<SeatData> mThumbnailSoldSeats;
+
+        /*
+         * BestSeatFinder
+         */
+        final List<SeatData> mFinderSeats = new ArrayList<>();
+        final List<SeatData> mFinderSoldSeats = new ArrayList<>();
+        final SeatData[][] mSeatArray;
+        final List<Point> mPoints = new ArrayList<>();
+
+        CopiedLayout(List<SeatData> seats, List<SeatData> soldSeats) {
+            int maxRow = 0;
+            int maxCol = 0;
+            for (SeatData seat : seats) {
+                mSeatData.put(getKey(seat), seat);
+                maxRow = Math.max(seat.point.x, maxRow);
+                maxCol = Math.max(seat.point.y, maxCol);
+            }
+            mSoldSeats.addAll(soldSeats);
+            for (SeatData soldSeat : mSoldSeats) {
+                mSeatData.put(getKey(soldSeat), soldSeat);
+            }
+
+            for (SeatData seat : seats) {
+                mThumbnailSeatData.put(getKey(seat), seat);
+            }
+            mThumbnailSoldSeats = new ArrayList<>(soldSeats);
+            for (SeatData soldSeat : mThumbnailSoldSeats) {
+                mThumbnailSeatData.put(getKey(soldSeat), soldSeat);
+            }
+
+            mFinderSeats.addAll(seats);
+            mFinderSoldSeats.addAll(soldSeats);
+            mSeatArray = new SeatData[maxRow + 1][maxCol + 1];
+            for (SeatData seat : mFinderSeats) {
+                mSeatArray[seat.point.x][seat.point.y] = seat;
+            }
+            for (SeatData soldSeat : mFinderSoldSeats) {
+                mSeatArray[soldSeat.point.x][soldSeat.point.y] = soldSeat;
+            }
+            for (int row = 0; row < mSeatArray.length; row++) {
+                for (int col = 0; col < mSeatArray[row].length; col++) {
+                    mPoints.add(new Point(col, row));
+                }
+            }
+        }
+
+        /**
+         * 原来的 SeatData.seatKey()，每次都创建新的字符串
+         */
+        private static String getKey(SeatData seat) {
+            return seat.point.x + "-" + seat.point.y;
+        }
+    }
+
+    /**
+     * 共用的座位网格、SeatView 保存的已售、已选座位，以及推荐座位的位图、排序和代价。
+     */
+    private static class SharedLayout {
+
+        final SeatGrid grid = new SeatGrid();
+        final BestSeatFinder finder = new BestSeatFinder(grid);
+        final List<SeatData> mSelectedSeats = new ArrayList<>(6);
+        final List<SeatData> mSoldSeats = new ArrayList<>(50);
+
+        SharedLayout(List<SeatData> seats, List<SeatData> soldSeats) {
+            grid.setSeats(seats);
+            mSoldSeats.addAll(soldSeats);
+            for (SeatData soldSeat : mSoldSeats) {
+                grid.put(soldSeat);
+            }
+            // 创建按离中心的距离查找多组推荐座位时使用的序号
+            finder.findRecommendSeats(2, 3, false);
+        }
+    }
+}
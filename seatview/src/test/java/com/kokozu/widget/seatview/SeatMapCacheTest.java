@@ -0,0 +1,97 @@
+package com.kokozu.widget.seatview;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * 验证座位图缓存的读写、损坏文件的处理以及旧版本的清理。
+ */
+public class SeatMapCacheTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void get_missing_returnsNull() {
+        SeatMapCache cache = new SeatMapCache(new File(mFolder.getRoot(), "seatmap"));
+        assertNull(cache.get("1024", 1));
+    }
+
+    @Test
+    public void get_returnsPutTable() throws IOException {
+        SeatMapCache cache = new SeatMapCache(new File(mFolder.getRoot(), "seatmap"));
+        SeatTable table = SeatMapFileTest.newTable();
+        cache.put("影厅/1", 3, table);
+
+        SeatMapFileTest.assertTablesEqual(table, cache.get("影厅/1", 3));
+        assertNull(cache.get("影厅/1", 2));
+    }
+
+    @Test
+    public void get_corruptFile_deletesFileAndReturnsNull() throws IOException {
+        File directory = mFolder.newFolder("seatmap");
+        SeatMapCache cache = new SeatMapCache(directory);
+        cache.put("1024", 1, SeatMapFileTest.newTable());
+        File file = getOnlyFile(directory);
+
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16});
+        } finally {
+            out.close();
+        }
+
+        assertNull(cache.get("1024", 1));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void put_removesOlderVersions() throws IOException {
+        File directory = mFolder.newFolder("seatmap");
+        SeatMapCache cache = new SeatMapCache(directory);
+        SeatTable table = SeatMapFileTest.newTable();
+        cache.put("1", 1, table);
+        // 影厅 id 是另一个影厅 id 的前缀时不会被删除
+        cache.put("12", 1, table);
+        assertEquals(2, directory.list().length);
+
+        cache.put("1", 2, table);
+
+        assertEquals(2, directory.list().length);
+        assertNull(cache.get("1", 1));
+        assertNotNull(cache.get("1", 2));
+        assertNotNull(cache.get("12", 1));
+    }
+
+    @Test
+    public void remove_deletesAllVersionsOfHall() throws IOException {
+        File directory = mFolder.newFolder("seatmap");
+        SeatMapCache cache = new SeatMapCache(directory);
+        SeatTable table = SeatMapFileTest.newTable();
+        cache.put("1", 1, table);
+        cache.put("2", 1, table);
+
+        cache.remove("1");
+
+        assertNull(cache.get("1", 1));
+        assertNotNull(cache.get("2", 1));
+        assertEquals(1, directory.list().length);
+    }
+
+    private static File getOnlyFile(File directory) {
+        File[] files = directory.listFiles();
+        assertNotNull(files);
+        assertEquals(1, files.length);
+        return files[0];
+    }
+}
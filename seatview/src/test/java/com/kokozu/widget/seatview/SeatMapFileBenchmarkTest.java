@@ -0,0 +1,97 @@
+package com.kokozu.widget.seatview;
+
+import android.graphics.Point;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 比较从二进制座位图和从 List&lt;SeatData&gt; 建立 2,000 个座位的座位网格，
+ * 验证两者的座位相同并打印耗时。
+ */
+public class SeatMapFileBenchmarkTest {
+
+    private static final int ROW_COUNT = 40;
+    private static final int COL_COUNT = 50;
+    private static final int ROUNDS = 100;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void read_matchesSeatList() throws IOException {
+        final File file = mFolder.newFile("hall.seatmap");
+        SeatMapFile.write(SeatTable.from(newSeatList()), file);
+
+        SeatGrid listed = new SeatGrid();
+        listed.setSeats(newSeatList());
+        SeatGrid mapped = new SeatGrid();
+        mapped.setSeats(SeatMapFile.read(file));
+        assertEquals(listed.size(), mapped.size());
+        for (int row = 0; row <= listed.getMaxRow(); row++) {
+            for (int col = 0; col <= listed.getMaxCol(); col++) {
+                String position = row + "-" + col;
+                assertEquals(position, listed.getState(row, col), mapped.getState(row, col));
+                assertEquals(position, listed.getType(row, col), mapped.getType(row, col));
+            }
+        }
+
+        long listNanos =
+                Benchmarks.bestNanos(
+                        ROUNDS,
+                        new Runnable() {
+
+                            @Override
+                            public void run() {
+                                new SeatGrid().setSeats(newSeatList());
+                            }
+                        });
+        long readNanos =
+                Benchmarks.bestNanos(
+                        ROUNDS,
+                        new Runnable() {
+
+                            @Override
+                            public void run() {
+                                try {
+                                    new SeatGrid().setSeats(SeatMapFile.read(file));
+                                } catch (IOException e) {
+                                    throw new AssertionError(e);
+                                }
+                            }
+                        });
+        Benchmarks.report(
+                "build " + mapped.size() + " seats, list vs seat map file", listNanos, readNanos);
+    }
+
+    /**
+     * 每个座位的文字都是新的字符串，与解析 JSON 得到的座位相同。
+     */
+    private static List<SeatData> newSeatList() {
+        List<SeatData> seats = new ArrayList<>(ROW_COUNT * COL_COUNT);
+        for (int row = 1; row <= ROW_COUNT; row++) {
+            for (int col = 1; col <= COL_COUNT; col++) {
+                SeatData seat = new SeatData();
+                // 单元测试中 Point 的构造方法不会赋值
+                seat.point = new Point();
+                seat.point.x = row;
+                seat.point.y = col;
+                seat.state = (row * 7 + col) % 3 == 0 ? SeatData.STATE_SOLD : SeatData.STATE_NORMAL;
+                seat.seatRow = String.valueOf(row);
+                seat.seatCol = String.valueOf(col);
+                seat.seatNo = "1024_5_" + row + "_" + col;
+                seat.pieceNo = new String("1");
+                seats.add(seat);
+            }
+        }
+        return seats;
+    }
+}
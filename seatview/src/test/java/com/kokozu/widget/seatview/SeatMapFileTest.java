@@ -0,0 +1,175 @@
+package com.kokozu.widget.seatview;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 验证二进制座位图的读写，以及对格式不正确的文件的检查。
+ */
+public class SeatMapFileTest {
+
+    /*
+     * 与 SeatMapFile 的文件格式相同
+     */
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 6 + SeatTable.LABEL_COUNT * 4;
+    private static final int STRING_ENTRY_SIZE = 8;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void read_restoresWrittenTable() throws IOException {
+        SeatTable table = newTable();
+        File file = mFolder.newFile("hall.seatmap");
+        SeatMapFile.write(table, file);
+
+        assertTablesEqual(table, SeatMapFile.read(file));
+    }
+
+    @Test
+    public void read_emptyTable() throws IOException {
+        File file = mFolder.newFile("empty.seatmap");
+        SeatMapFile.write(new SeatTable(), file);
+
+        assertEquals(0, SeatMapFile.read(file).size());
+    }
+
+    @Test(expected = IOException.class)
+    public void read_rejectsWrongMagic() throws IOException {
+        File file = writeTable();
+        writeInt(file, 0, 0x12345678);
+        SeatMapFile.read(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void read_rejectsShortFile() throws IOException {
+        File file = writeTable();
+        truncate(file, HEADER_SIZE - 1);
+        SeatMapFile.read(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void read_rejectsOtherVersion() throws IOException {
+        File file = writeTable();
+        writeInt(file, 4, SeatMapFile.VERSION + 1);
+        SeatMapFile.read(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void read_rejectsStringIdPastTable() throws IOException {
+        File file = writeTable();
+        // 第一个座位的排号
+        writeInt(file, HEADER_SIZE + 6, readInt(file, 12));
+        SeatMapFile.read(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void read_rejectsNegativeStringId() throws IOException {
+        File file = writeTable();
+        writeInt(file, HEADER_SIZE + 6, SeatStrings.NO_STRING - 1);
+        SeatMapFile.read(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void read_rejectsTruncatedStringTable() throws IOException {
+        File file = writeTable();
+        int seatCount = readInt(file, 8);
+        int stringCount = readInt(file, 12);
+        truncate(
+                file,
+                HEADER_SIZE
+                        + seatCount * RECORD_SIZE
+                        + (stringCount - 1) * STRING_ENTRY_SIZE
+                        + STRING_ENTRY_SIZE / 2);
+        SeatMapFile.read(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void read_rejectsTruncatedStrings() throws IOException {
+        File file = writeTable();
+        // 最后一个文字的字节不完整
+        truncate(file, file.length() - 1);
+        SeatMapFile.read(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void read_rejectsSeatCountPastFile() throws IOException {
+        File file = writeTable();
+        writeInt(file, 8, readInt(file, 8) + 1);
+        SeatMapFile.read(file);
+    }
+
+    /**
+     * 包含空的文字、非 ASCII 的文字、重复的文字，以及超过 short 范围的排和列。
+     */
+    static SeatTable newTable() {
+        SeatTable table = new SeatTable();
+        table.addSeat(1, 1, SeatData.STATE_NORMAL, SeatData.TYPE_NORMAL, "1", "1", "1_1", null);
+        table.addSeat(1, 2, SeatData.STATE_SOLD, SeatData.TYPE_NORMAL, "1", "2", "1_2", null);
+        table.addSeat(
+                2, 1, SeatData.STATE_NORMAL, SeatData.TYPE_LOVER_LEFT, "贵宾", "1", null, "情侣区");
+        table.addSeat(
+                2, 2, SeatData.STATE_NORMAL, SeatData.TYPE_LOVER_RIGHT, "贵宾", "2", null, "情侣区");
+        table.addSeat(3, 5, SeatData.STATE_NORMAL, SeatData.TYPE_NORMAL, null, null, null, null);
+        table.addSeat(40000, 65535, SeatData.STATE_SOLD, SeatData.TYPE_NORMAL, "Ⅻ", "🎬", "", "Ä");
+        return table;
+    }
+
+    static void assertTablesEqual(SeatTable expected, SeatTable actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            String message = "seat " + i;
+            assertEquals(message, expected.getRow(i), actual.getRow(i));
+            assertEquals(message, expected.getCol(i), actual.getCol(i));
+            assertEquals(message, expected.getState(i), actual.getState(i));
+            assertEquals(message, expected.getType(i), actual.getType(i));
+            assertEquals(message, expected.getSeatRow(i), actual.getSeatRow(i));
+            assertEquals(message, expected.getSeatCol(i), actual.getSeatCol(i));
+            assertEquals(message, expected.getSeatNo(i), actual.getSeatNo(i));
+            assertEquals(message, expected.getPieceNo(i), actual.getPieceNo(i));
+        }
+    }
+
+    private File writeTable() throws IOException {
+        File file = mFolder.newFile();
+        SeatMapFile.write(newTable(), file);
+        return file;
+    }
+
+    private static int readInt(File file, long position) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            raf.seek(position);
+            return raf.readInt();
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static void writeInt(File file, long position, int value) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.seek(position);
+            raf.writeInt(value);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static void truncate(File file, long length) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(length);
+        } finally {
+            raf.close();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.kokozu.widget.seatview;
+
+import android.graphics.Point;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 比较通过 {@link SeatRowDecoder} 和通过 List&lt;SeatData&gt; 建立同一个影厅的座位网格，
+ * 验证两者的座位相同并打印耗时。
+ */
+public class SeatRowDecoderBenchmarkTest {
+
+    private static final int ROUNDS = 100;
+
+    @Test
+    public void decode_matchesSeatList() {
+        runHall(40, 50);
+        runHall(80, 80);
+    }
+
+    private static void runHall(int rowCount, int colCount) {
+        final List<String> rows = new ArrayList<>(rowCount);
+        final List<String> soldRows = new ArrayList<>(rowCount);
+        newHall(new Random(20261017), rowCount, colCount, rows, soldRows);
+
+        SeatGrid decoded = new SeatGrid();
+        decoded.setSeats(SeatRowDecoder.decode(rows, soldRows));
+        SeatGrid listed = new SeatGrid();
+        listed.setSeats(toSeatList(rows, soldRows));
+        assertEquals(listed.size(), decoded.size());
+        assertEquals(listed.getMaxRow(), decoded.getMaxRow());
+        assertEquals(listed.getMaxCol(), decoded.getMaxCol());
+        for (int row = 0; row <= listed.getMaxRow(); row++) {
+            for (int col = 0; col <= listed.getMaxCol(); col++) {
+                String position = row + "-" + col;
+                assertEquals(position, listed.getState(row, col), decoded.getState(row, col));
+                assertEquals(position, listed.getType(row, col), decoded.getType(row, col));
+            }
+        }
+
+        long listNanos =
+                Benchmarks.bestNanos(
+                        ROUNDS,
+                        new Runnable() {
+
+                            @Override
+                            public void run() {
+                                new SeatGrid().setSeats(toSeatList(rows, soldRows));
+                            }
+                        });
+        long decodeNanos =
+                Benchmarks.bestNanos(
+                        ROUNDS,
+                        new Runnable() {
+
+                            @Override
+                            public void run() {
+                                new SeatGrid().setSeats(SeatRowDecoder.decode(rows, soldRows));
+                            }
+                        });
+        Benchmarks.report(
+                "build " + decoded.size() + " seats, list vs decoder", listNanos, decodeNanos);
+    }
+
+    /**
+     * 生成每排中间有过道、两侧各有两对情侣座、约三分之一已售的影厅。
+     */
+    private static void newHall(
+            Random random,
+            int rowCount,
+            int colCount,
+            List<String> rows,
+            List<String> soldRows) {
+        for (int row = 0; row < rowCount; row++) {
+            StringBuilder seats = new StringBuilder(colCount);
+            StringBuilder sold = new StringBuilder(colCount);
+            for (int col = 0; col < colCount; col++) {
+                if (col == colCount / 2) {
+                    seats.append(SeatRowDecoder.NO_SEAT);
+                } else if (col < 4 || col >= colCount - 4) {
+                    seats.append(
+                            col % 2 == 0 ? SeatRowDecoder.LOVER_LEFT : SeatRowDecoder.LOVER_RIGHT);
+                } else {
+                    seats.append(SeatRowDecoder.SEAT);
+                }
+                sold.append(random.nextInt(3) == 0 ? SeatRowDecoder.SOLD : '0');
+            }
+            rows.add(seats.toString());
+            soldRows.add(sold.toString());
+        }
+    }
+
+    /**
+     * 按应用原来的方式为每个座位创建 SeatData，规则与 SeatRowDecoder 相同。
+     */
+    private static List<SeatData> toSeatList(List<String> rows, List<String> soldRows) {
+        List<SeatData> seats = new ArrayList<>();
+        int seatRow = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            String row = rows.get(i);
+            String soldRow = soldRows.get(i);
+            int seatCol = 0;
+            for (int j = 0; j < row.length(); j++) {
+                char c = row.charAt(j);
+                if (c == SeatRowDecoder.NO_SEAT) {
+                    continue;
+                }
+                if (seatCol == 0) {
+                    seatRow++;
+                }
+                seatCol++;
+
+                SeatData seat = new SeatData();
+                // 单元测试中 Point 的构造方法不会赋值
+                seat.point = new Point();
+                seat.point.x = i + 1;
+                seat.point.y = j + 1;
+                boolean isSold = soldRow.charAt(j) == SeatRowDecoder.SOLD;
+                if (c == SeatRowDecoder.LOVER_LEFT) {
+                    seat.type = SeatData.TYPE_LOVER_LEFT;
+                    isSold |= soldRow.charAt(j + 1) == SeatRowDecoder.SOLD;
+                } else if (c == SeatRowDecoder.LOVER_RIGHT) {
+                    seat.type = SeatData.TYPE_LOVER_RIGHT;
+                    isSold |= soldRow.charAt(j - 1) == SeatRowDecoder.SOLD;
+                } else {
+                    seat.type = SeatData.TYPE_NORMAL;
+                }
+                seat.state = isSold ? SeatData.STATE_SOLD : SeatData.STATE_NORMAL;
+                seat.seatRow = String.valueOf(seatRow);
+                seat.seatCol = String.valueOf(seatCol);
+                seats.add(seat);
+            }
+        }
+        return seats;
+    }
+}
@@ -0,0 +1,209 @@
+package com.kokozu.widget.seatview;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 在随机的座位图和选座上，用原来逐个座位检查的实现验证 {@link SeatSelectRegular} 的位图实现。
+ */
+public class SeatSelectRegularTest {
+
+    private static final int ROUNDS = 300;
+    private static final int STEPS = 60;
+
+    @Test
+    public void isRowLegal_incrementalUpdates_matchBaseline() {
+        Random random = new Random(20170420);
+        for (int round = 0; round < ROUNDS; round++) {
+            int[][] states = randomStates(random);
+            SeatGrid grid = newSeatGrid(states);
+            if (grid.size() == 0) {
+                continue;
+            }
+            SeatSelectRegular regular = new SeatSelectRegular(grid);
+            regular.rebuild();
+
+            for (int step = 0; step < STEPS; step++) {
+                int row = 1 + random.nextInt(states.length - 1);
+                int col = 1 + random.nextInt(states[row].length - 1);
+                int state = nextState(states[row][col], random);
+                if (state == SeatGrid.NO_SEAT) {
+                    continue;
+                }
+                states[row][col] = state;
+                grid.setState(row, col, state);
+                regular.onSeatChanged(row, col);
+
+                for (int r = 0; r <= grid.getMaxRow(); r++) {
+                    assertEquals(
+                            describe(round, states, r),
+                            TestHall.checkSeatRowAvailable(states, r, grid.getMaxCol()),
+                            regular.isRowLegal(r));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void isRowLegal_withBits_matchesBaseline() {
+        Random random = new Random(20261017);
+        for (int round = 0; round < ROUNDS; round++) {
+            int[][] states = randomStates(random);
+            SeatGrid grid = newSeatGrid(states);
+            if (grid.size() == 0) {
+                continue;
+            }
+            for (int row = 1; row < states.length; row++) {
+                for (int col = 1; col < states[row].length; col++) {
+                    if (states[row][col] == SeatData.STATE_NORMAL && random.nextInt(4) == 0) {
+                        states[row][col] = SeatData.STATE_SELECTED;
+                    }
+                }
+            }
+
+            SeatBits freeBits = new SeatBits();
+            SeatBits selectedBits = new SeatBits();
+            freeBits.reset(grid.getMaxRow(), grid.getMaxCol());
+            selectedBits.reset(grid.getMaxRow(), grid.getMaxCol());
+            for (int row = 0; row <= grid.getMaxRow(); row++) {
+                for (int col = 0; col <= grid.getMaxCol(); col++) {
+                    int state = TestHall.getSeatState(states, row, col);
+                    freeBits.set(row, col, state != SeatData.STATE_SOLD);
+                    selectedBits.set(row, col, state == SeatData.STATE_SELECTED);
+                }
+            }
+
+            for (int row = 0; row <= grid.getMaxRow(); row++) {
+                assertEquals(
+                        describe(round, states, row),
+                        TestHall.checkSeatRowAvailable(states, row, grid.getMaxCol()),
+                        SeatSelectRegular.isRowLegal(freeBits, selectedBits, row));
+            }
+        }
+    }
+
+    @Test
+    public void isBlockLegal_matchesBaseline() {
+        Random random = new Random(42);
+        for (int round = 0; round < ROUNDS; round++) {
+            int[][] states = randomStates(random);
+            SeatGrid grid = newSeatGrid(states);
+            if (grid.size() == 0) {
+                continue;
+            }
+
+            SeatBits freeBits = new SeatBits();
+            freeBits.reset(grid.getMaxRow(), grid.getMaxCol());
+            for (int row = 0; row <= grid.getMaxRow(); row++) {
+                for (int col = 0; col <= grid.getMaxCol(); col++) {
+                    int state = TestHall.getSeatState(states, row, col);
+                    freeBits.set(row, col, state != SeatData.STATE_SOLD);
+                }
+            }
+
+            for (int row = 1; row <= grid.getMaxRow(); row++) {
+                for (int col = 1; col <= grid.getMaxCol(); col++) {
+                    for (int count = 1; count <= 4; count++) {
+                        if (!freeBits.isAllSet(row, col, col + count - 1)) {
+                            break;
+                        }
+                        setBlock(states, row, col, count, SeatData.STATE_SELECTED);
+                        boolean expected =
+                                TestHall.checkSeatRowAvailable(states, row, grid.getMaxCol());
+                        String message = describe(round, states, row);
+                        setBlock(states, row, col, count, SeatData.STATE_NORMAL);
+
+                        assertEquals(
+                                message,
+                                expected,
+                                SeatSelectRegular.isBlockLegal(freeBits, row, col, count));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 随机生成 1 ~ 4 排、1 ~ 140 列的座位图，跨过 long 位图的边界。
+     *
+     * @return [row][col] 的座位状态，没有座位时为 SeatGrid.NO_SEAT
+     */
+    private static int[][] randomStates(Random random) {
+        int maxRow = 1 + random.nextInt(4);
+        int maxCol = 1 + random.nextInt(140);
+        int[][] states = new int[maxRow + 1][maxCol + 1];
+        for (int[] row : states) {
+            Arrays.fill(row, SeatGrid.NO_SEAT);
+        }
+        for (int row = 1; row <= maxRow; row++) {
+            for (int col = 1; col <= maxCol; col++) {
+                int r = random.nextInt(10);
+                if (r == 0) {
+                    continue;
+                }
+                states[row][col] = r < 4 ? SeatData.STATE_SOLD : SeatData.STATE_NORMAL;
+            }
+        }
+        return states;
+    }
+
+    /**
+     * 随机修改座位的状态：可选和已选之间切换，偶尔售出或释放。
+     */
+    private static int nextState(int state, Random random) {
+        switch (state) {
+            case SeatData.STATE_NORMAL:
+                return random.nextInt(5) == 0 ? SeatData.STATE_SOLD : SeatData.STATE_SELECTED;
+
+            case SeatData.STATE_SELECTED:
+                return random.nextInt(5) == 0 ? SeatData.STATE_SOLD : SeatData.STATE_NORMAL;
+
+            case SeatData.STATE_SOLD:
+                return SeatData.STATE_NORMAL;
+
+            default:
+                return SeatGrid.NO_SEAT;
+        }
+    }
+
+    private static void setBlock(int[][] states, int row, int col, int count, int state) {
+        for (int i = col; i < col + count; i++) {
+            states[row][i] = state;
+        }
+    }
+
+    private static SeatGrid newSeatGrid(int[][] states) {
+        return new TestHall(states, null).newGrid();
+    }
+
+    private static String describe(int round, int[][] states, int row) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("round ").append(round).append(", row ").append(row).append(": ");
+        if (row < states.length) {
+            for (int state : states[row]) {
+                switch (state) {
+                    case SeatData.STATE_NORMAL:
+                        builder.append('o');
+                        break;
+
+                    case SeatData.STATE_SELECTED:
+                        builder.append('x');
+                        break;
+
+                    case SeatData.STATE_SOLD:
+                        builder.append('#');
+                        break;
+
+                    default:
+                        builder.append('_');
+                        break;
+                }
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,66 @@
+package com.kokozu.widget.seatview;
+
+import android.graphics.Point;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 验证已售快照的编码、解码，以及对影厅大小的检查。
+ */
+public class SeatSoldCodecTest {
+
+    @Test
+    public void decode_restoresEncodedSeats() {
+        List<SeatData> soldSeats = new ArrayList<>();
+        soldSeats.add(newSeat(0, 0));
+        soldSeats.add(newSeat(2, 3));
+        soldSeats.add(newSeat(2, 4));
+        soldSeats.add(newSeat(5, 9));
+
+        SeatBits soldBits = SeatSoldCodec.decode(SeatSoldCodec.encode(soldSeats, 5, 9), 5, 9);
+        int soldCount = 0;
+        for (int row = 0; row <= 5; row++) {
+            for (int col = 0; col <= 9; col++) {
+                if (soldBits.get(row, col)) {
+                    soldCount++;
+                }
+            }
+        }
+        assertEquals(soldSeats.size(), soldCount);
+        for (SeatData seat : soldSeats) {
+            assertTrue(soldBits.get(seat.point.x, seat.point.y));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_rejectsOtherHallSize() {
+        SeatSoldCodec.decode(SeatSoldCodec.encode(new ArrayList<SeatData>(), 5, 9), 5, 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_rejectsOversizedHall() {
+        // 版本 1，最大排 0x10000，最大列 1，0 段
+        byte[] data = {1, (byte) 0x80, (byte) 0x80, 0x04, 1, 0};
+        SeatSoldCodec.decode(data, 0x10000, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void encode_rejectsOversizedHall() {
+        SeatSoldCodec.encode(new ArrayList<SeatData>(), 0xFFFF, 0xFFFF);
+    }
+
+    private static SeatData newSeat(int row, int col) {
+        SeatData seat = new SeatData();
+        // 单元测试中 Point 的构造方法不会赋值
+        seat.point = new Point();
+        seat.point.x = row;
+        seat.point.y = col;
+        return seat;
+    }
+}
@@ -0,0 +1,163 @@
+package com.kokozu.widget.seatview;
+
+import android.graphics.Point;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 直接调用 applyPendingChanges() 验证已售状态的合并和应用。
+ */
+public class SeatSoldSyncTest {
+
+    @Test
+    public void applyPendingChanges_lastUpdateWins() {
+        GridTarget target = new GridTarget();
+        SeatSoldSync sync = new SeatSoldSync(target);
+        sync.offerSeatSold(1, 1, true);
+        sync.offerSeatSold(1, 2, false);
+        sync.offerSeatSold(1, 1, false);
+        sync.offerSeatSold(1, 2, true);
+        sync.offerSeatSold(1, 1, true);
+        sync.applyPendingChanges();
+
+        assertEquals(SeatData.STATE_SOLD, target.grid.getState(1, 1));
+        assertEquals(SeatData.STATE_SOLD, target.grid.getState(1, 2));
+        // 每个座位只应用一次，按 seatKey 从小到大
+        assertEquals(Arrays.asList("1-1", "1-2"), target.appliedSeats);
+        assertEquals(Collections.singletonList(false), target.appliedFrames);
+    }
+
+    @Test
+    public void applyPendingChanges_releasedSeatsReturnToNormal() {
+        GridTarget target = new GridTarget();
+        target.grid.setState(2, 1, SeatData.STATE_SOLD);
+        target.grid.setState(2, 3, SeatData.STATE_SOLD);
+        SeatSoldSync sync = new SeatSoldSync(target);
+        sync.offerSoldSeats(
+                Collections.singletonList(newSeat(2, 2)),
+                Arrays.asList(newSeat(2, 1), newSeat(2, 3)));
+        sync.applyPendingChanges();
+
+        assertEquals(SeatData.STATE_NORMAL, target.grid.getState(2, 1));
+        assertEquals(SeatData.STATE_SOLD, target.grid.getState(2, 2));
+        assertEquals(SeatData.STATE_NORMAL, target.grid.getState(2, 3));
+        assertEquals(Collections.singletonList(false), target.appliedFrames);
+    }
+
+    @Test
+    public void applyPendingChanges_reportsSoldSelectedSeatOnly() {
+        GridTarget target = new GridTarget();
+        target.grid.setState(3, 2, SeatData.STATE_SELECTED);
+        SeatSoldSync sync = new SeatSoldSync(target);
+
+        // 已选的座位被释放不算售出
+        sync.offerSeatSold(3, 2, false);
+        sync.offerSeatSold(3, 3, true);
+        sync.applyPendingChanges();
+        assertEquals(SeatData.STATE_SELECTED, target.grid.getState(3, 2));
+
+        // 售出后又释放，只应用最后的状态
+        sync.offerSeatSold(3, 2, true);
+        sync.offerSeatSold(3, 2, false);
+        sync.applyPendingChanges();
+        assertEquals(SeatData.STATE_SELECTED, target.grid.getState(3, 2));
+
+        sync.offerSeatSold(3, 2, true);
+        sync.applyPendingChanges();
+        assertEquals(SeatData.STATE_SOLD, target.grid.getState(3, 2));
+
+        assertEquals(Arrays.asList(false, false, true), target.appliedFrames);
+    }
+
+    @Test
+    public void applyPendingChanges_emptyQueue_appliesNothing() {
+        GridTarget target = new GridTarget();
+        SeatSoldSync sync = new SeatSoldSync(target);
+        sync.applyPendingChanges();
+        sync.offerSoldSeats(null, null);
+        sync.applyPendingChanges();
+
+        assertTrue(target.appliedSeats.isEmpty());
+        assertTrue(target.appliedFrames.isEmpty());
+    }
+
+    @Test
+    public void applyPendingChanges_manySeats_keepsEveryLastState() {
+        GridTarget target = new GridTarget();
+        SeatSoldSync sync = new SeatSoldSync(target);
+        // 逆序提交，超过初始容量
+        for (int row = 5; row >= 1; row--) {
+            for (int col = 8; col >= 1; col--) {
+                sync.offerSeatSold(row, col, true);
+                sync.offerSeatSold(row, col, (row + col) % 2 == 0);
+            }
+        }
+        sync.applyPendingChanges();
+
+        List<String> expectedSeats = new ArrayList<>();
+        for (int row = 1; row <= 5; row++) {
+            for (int col = 1; col <= 8; col++) {
+                String position = TestHall.position(row, col);
+                expectedSeats.add(position);
+                assertEquals(
+                        position,
+                        (row + col) % 2 == 0 ? SeatData.STATE_SOLD : SeatData.STATE_NORMAL,
+                        target.grid.getState(row, col));
+            }
+        }
+        assertEquals(expectedSeats, target.appliedSeats);
+    }
+
+    private static SeatData newSeat(int row, int col) {
+        SeatData seat = new SeatData();
+        // 单元测试中 Point 的构造方法不会赋值
+        seat.point = new Point();
+        seat.point.x = row;
+        seat.point.y = col;
+        return seat;
+    }
+
+    /**
+     * 按 SeatView.applySoldChange 的规则修改 5 排 8 列的座位网格，并记录应用的变化。
+     */
+    private static class GridTarget implements SeatSoldSync.Target {
+
+        final SeatGrid grid;
+        final List<String> appliedSeats = new ArrayList<>();
+        final List<Boolean> appliedFrames = new ArrayList<>();
+
+        GridTarget() {
+            int[][] states = new int[6][9];
+            for (int[] row : states) {
+                Arrays.fill(row, SeatData.STATE_NORMAL);
+                row[0] = SeatGrid.NO_SEAT;
+            }
+            Arrays.fill(states[0], SeatGrid.NO_SEAT);
+            grid = new TestHall(states, null).newGrid();
+        }
+
+        @Override
+        public boolean applySoldChange(int row, int col, boolean sold) {
+            appliedSeats.add(TestHall.position(row, col));
+            int state = grid.getState(row, col);
+            if (state == SeatGrid.NO_SEAT || (state == SeatData.STATE_SOLD) == sold) {
+                return false;
+            }
+            grid.setState(row, col, sold ? SeatData.STATE_SOLD : SeatData.STATE_NORMAL);
+            return sold && state == SeatData.STATE_SELECTED;
+        }
+
+        @Override
+        public void onSoldChangesApplied(boolean selectedSeatSold) {
+            appliedFrames.add(selectedSeatSold);
+        }
+    }
+}
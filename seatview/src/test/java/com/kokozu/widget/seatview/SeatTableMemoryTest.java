@@ -0,0 +1,79 @@
+package com.kokozu.widget.seatview;
+
+import android.graphics.Point;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 测量同一个影厅用 List&lt;SeatData&gt; 和 {@link SeatTable} 保存时占用的堆内存。
+ * 结果取决于 JVM 的对象布局，只在当前 JVM 上有效，ART 上的数值需要在设备上测量。
+ */
+public class SeatTableMemoryTest {
+
+    @Test
+    public void seatTable_retainsLessHeapThanSeatList() {
+        measure(40, 50);
+        measure(60, 100);
+    }
+
+    private static void measure(int rowCount, int colCount) {
+        long before = usedMemory();
+        List<SeatData> seats = newSeatList(rowCount, colCount);
+        long listBytes = usedMemory() - before;
+        seats = null;
+
+        before = usedMemory();
+        SeatTable table = SeatTable.from(newSeatList(rowCount, colCount));
+        long tableBytes = usedMemory() - before;
+
+        System.out.println(
+                String.format(
+                        Locale.US,
+                        "%d seats: List<SeatData> %d KB, SeatTable %d KB",
+                        table.size(),
+                        listBytes / 1024,
+                        tableBytes / 1024));
+        assertTrue(tableBytes < listBytes);
+    }
+
+    /**
+     * 每个座位的文字都是新的字符串，与解析 JSON 得到的座位相同。
+     */
+    private static List<SeatData> newSeatList(int rowCount, int colCount) {
+        List<SeatData> seats = new ArrayList<>(rowCount * colCount);
+        for (int row = 1; row <= rowCount; row++) {
+            for (int col = 1; col <= colCount; col++) {
+                SeatData seat = new SeatData();
+                // 单元测试中 Point 的构造方法不会赋值
+                seat.point = new Point();
+                seat.point.x = row;
+                seat.point.y = col;
+                seat.seatRow = String.valueOf(row);
+                seat.seatCol = String.valueOf(col);
+                seat.seatNo = "1024_5_" + row + "_" + col;
+                seat.pieceNo = new String("1");
+                seats.add(seat);
+            }
+        }
+        return seats;
+    }
+
+    static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
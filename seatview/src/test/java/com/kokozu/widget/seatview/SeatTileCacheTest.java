@@ -0,0 +1,22 @@
+package com.kokozu.widget.seatview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 验证分块缓存默认的大小足够铺满一屏。
+ */
+public class SeatTileCacheTest {
+
+    private static final int TILE_BYTES =
+            SeatTileCache.TILE_SIZE * SeatTileCache.TILE_SIZE * 4;
+
+    @Test
+    public void viewportBytes_coverUnalignedScreen() {
+        // 1080 / 256 向上取整为 5，1920 / 256 向上取整为 8，不对齐时各多一块
+        assertEquals(6 * 9 * TILE_BYTES, SeatTileCache.getViewportBytes(1080, 1920));
+        assertEquals(2 * 2 * TILE_BYTES, SeatTileCache.getViewportBytes(256, 256));
+        assertEquals(1 * 1 * TILE_BYTES, SeatTileCache.getViewportBytes(0, 0));
+    }
+}
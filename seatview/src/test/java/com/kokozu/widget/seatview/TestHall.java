@@ -0,0 +1,193 @@
+package com.kokozu.widget.seatview;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * 单元测试中使用的影厅。座位的状态、类型保存在 [row][col] 的数组中，没有座位时为 SeatGrid.NO_SEAT，
+ * 座位编号为 "排-列"，比较结果时不需要读取座位的 Point。
+ */
+final class TestHall extends SeatSource {
+
+    final int[][] states;
+    final int[][] types;
+
+    private final int[] mRows;
+    private final int[] mCols;
+
+    /**
+     * @param states [row][col] 的座位状态
+     * @param types  [row][col] 的座位类型，为 null 时都是普通座位
+     */
+    TestHall(int[][] states, int[][] types) {
+        this.states = states;
+        this.types = types;
+
+        int count = 0;
+        for (int[] row : states) {
+            for (int state : row) {
+                if (state != SeatGrid.NO_SEAT) {
+                    count++;
+                }
+            }
+        }
+        mRows = new int[count];
+        mCols = new int[count];
+        int index = 0;
+        for (int row = 0; row < states.length; row++) {
+            for (int col = 0; col < states[row].length; col++) {
+                if (states[row][col] != SeatGrid.NO_SEAT) {
+                    mRows[index] = row;
+                    mCols[index] = col;
+                    index++;
+                }
+            }
+        }
+    }
+
+    /**
+     * 随机生成 maxRow 排、maxCol 列的影厅，第 0 排、第 0 列没有座位。偶尔有过道和成对的情侣座，
+     * 情侣座的两个座位同时售出。
+     *
+     * @param soldRate 已售座位的比例
+     */
+    static TestHall random(Random random, int maxRow, int maxCol, float soldRate) {
+        int[][] states = new int[maxRow + 1][maxCol + 1];
+        int[][] types = new int[maxRow + 1][maxCol + 1];
+        for (int[] row : states) {
+            Arrays.fill(row, SeatGrid.NO_SEAT);
+        }
+        for (int row = 1; row <= maxRow; row++) {
+            for (int col = 1; col <= maxCol; col++) {
+                if (random.nextInt(12) == 0) {
+                    continue;
+                }
+                int state = random.nextFloat() < soldRate
+                        ? SeatData.STATE_SOLD
+                        : SeatData.STATE_NORMAL;
+                states[row][col] = state;
+                if (col < maxCol && random.nextInt(8) == 0) {
+                    types[row][col] = SeatData.TYPE_LOVER_LEFT;
+                    col++;
+                    states[row][col] = state;
+                    types[row][col] = SeatData.TYPE_LOVER_RIGHT;
+                }
+            }
+        }
+        return new TestHall(states, types);
+    }
+
+    SeatGrid newGrid() {
+        SeatGrid grid = new SeatGrid();
+        grid.setSeats(this);
+        return grid;
+    }
+
+    int getMaxRow() {
+        return states.length - 1;
+    }
+
+    int getMaxCol() {
+        return states[0].length - 1;
+    }
+
+    int getType(int row, int col) {
+        return types == null ? SeatData.TYPE_NORMAL : types[row][col];
+    }
+
+    static String position(int row, int col) {
+        return row + "-" + col;
+    }
+
+    @Override
+    public int getSeatCount() {
+        return mRows.length;
+    }
+
+    @Override
+    public int getRow(int index) {
+        return mRows[index];
+    }
+
+    @Override
+    public int getCol(int index) {
+        return mCols[index];
+    }
+
+    @Override
+    public int getState(int index) {
+        return states[mRows[index]][mCols[index]];
+    }
+
+    @Override
+    public int getType(int index) {
+        return getType(mRows[index], mCols[index]);
+    }
+
+    @Override
+    public String getSeatRow(int index) {
+        return null;
+    }
+
+    @Override
+    public String getSeatCol(int index) {
+        return null;
+    }
+
+    @Override
+    public String getSeatNo(int index) {
+        return position(mRows[index], mCols[index]);
+    }
+
+    @Override
+    public String getPieceNo(int index) {
+        return null;
+    }
+
+    /*
+     * 原来的选座规则，只把座位状态的来源从 Map<String, SeatData> 改为数组，其余保持不变。
+     */
+
+    static boolean checkSeatRowAvailable(int[][] states, int row, int maxCol) {
+        int l1, l2, r1, r2;
+        for (int s = 0; s < maxCol; s++) {
+            if (getSeatState(states, row, s) != SeatData.STATE_SELECTED) {
+                continue;
+            }
+
+            int i;
+            for (i = s + 1; i < maxCol; i++) {
+                if (getSeatState(states, row, i) != SeatData.STATE_SELECTED) {
+                    break;
+                }
+            }
+            l1 = getSeatState(states, row, s - 1);
+            l2 = getSeatState(states, row, s - 2);
+            r1 = getSeatState(states, row, i);
+            r2 = getSeatState(states, row, i + 1);
+
+            if (l1 == SeatData.STATE_SOLD || r1 == SeatData.STATE_SOLD) {
+                if (l2 == SeatData.STATE_SELECTED && l1 != SeatData.STATE_SOLD) {
+                    return false;
+                }
+                if (r2 == SeatData.STATE_SELECTED && r1 != SeatData.STATE_SOLD) {
+                    return false;
+                }
+            } else {
+                if (l2 != SeatData.STATE_NORMAL || r2 != SeatData.STATE_NORMAL) {
+                    return false;
+                }
+            }
+            s = i;
+        }
+        return true;
+    }
+
+    static int getSeatState(int[][] states, int row, int col) {
+        if (row < 0 || row >= states.length || col < 0 || col >= states[row].length) {
+            return SeatData.STATE_SOLD;
+        }
+        int state = states[row][col];
+        return state == SeatGrid.NO_SEAT ? SeatData.STATE_SOLD : state;
+    }
+}